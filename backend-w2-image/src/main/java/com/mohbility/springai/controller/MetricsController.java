@@ -0,0 +1,47 @@
+package com.mohbility.springai.controller;
+
+import com.mohbility.springai.service.ModelCallScheduler;
+import com.mohbility.springai.service.OpenAiClientFactory;
+import com.mohbility.springai.service.PromptCacheMetrics;
+import com.mohbility.springai.service.SemanticAnswerCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@CrossOrigin(origins = "*")
+@RequestMapping("/metrics")
+public class MetricsController {
+
+    private final PromptCacheMetrics promptCacheMetrics;
+    private final SemanticAnswerCache semanticAnswerCache;
+    private final OpenAiClientFactory openAiClientFactory;
+    private final ModelCallScheduler modelCallScheduler;
+
+    public MetricsController(PromptCacheMetrics promptCacheMetrics, SemanticAnswerCache semanticAnswerCache,
+                             OpenAiClientFactory openAiClientFactory, ModelCallScheduler modelCallScheduler) {
+        this.promptCacheMetrics = promptCacheMetrics;
+        this.semanticAnswerCache = semanticAnswerCache;
+        this.openAiClientFactory = openAiClientFactory;
+        this.modelCallScheduler = modelCallScheduler;
+    }
+
+    @GetMapping("/prompt-cache")
+    public ResponseEntity<?> promptCache() {
+        return ResponseEntity.ok(promptCacheMetrics.snapshot());
+    }
+
+    @GetMapping("/semantic-cache")
+    public ResponseEntity<?> semanticCache() {
+        return ResponseEntity.ok(semanticAnswerCache.snapshot());
+    }
+
+    @GetMapping("/model-clients")
+    public ResponseEntity<?> modelClients() {
+        return ResponseEntity.ok(openAiClientFactory.snapshot());
+    }
+
+    @GetMapping("/model-scheduler")
+    public ResponseEntity<?> modelScheduler() {
+        return ResponseEntity.ok(modelCallScheduler.snapshot());
+    }
+}
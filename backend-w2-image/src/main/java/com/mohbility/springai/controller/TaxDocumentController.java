@@ -1,25 +1,36 @@
 package com.mohbility.springai.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mohbility.springai.exception.ExportStreamException;
+import com.mohbility.springai.exception.InvalidSessionException;
+import com.mohbility.springai.export.ExportWriter;
+import com.mohbility.springai.model.ExtractionOutcome;
 import com.mohbility.springai.model.TaxDocumentResult;
 import com.mohbility.springai.model.AnalysisRequest;
+import com.mohbility.springai.service.ExtractionJob;
+import com.mohbility.springai.service.PreviewStore;
 import com.mohbility.springai.service.TaxDocumentService;
 import com.mohbility.springai.utils.TaxDocumentExcelExporter;
-import jakarta.servlet.http.HttpServletResponse;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.ImageType;
-import org.apache.pdfbox.rendering.PDFRenderer;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import reactor.core.publisher.Flux;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.regex.Pattern;
 
 @RestController
 @CrossOrigin(origins = "*")
@@ -27,27 +38,37 @@ import java.util.stream.Collectors;
 public class TaxDocumentController {
 
     private final TaxDocumentService taxDocumentService;
-    private final Map<String, List<TaxDocumentResult>> sessionDocuments = new ConcurrentHashMap<>();
-    private static final String DEFAULT_SESSION = "default";
+    private final PreviewStore previewStore;
+    private final List<ExportWriter> exportWriters;
+    private final ObjectMapper objectMapper;
+    private static final String SESSION_HEADER = "X-Session-Id";
+    private static final Pattern SESSION_ID_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final Duration JOB_EVENTS_TIMEOUT = Duration.ofMinutes(30);
 
-    public TaxDocumentController(TaxDocumentService taxDocumentService) {
+    public TaxDocumentController(TaxDocumentService taxDocumentService, PreviewStore previewStore,
+                                 List<ExportWriter> exportWriters, ObjectMapper objectMapper) {
         this.taxDocumentService = taxDocumentService;
+        this.previewStore = previewStore;
+        this.exportWriters = exportWriters;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/upload")
-    public ResponseEntity<?> upload(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> upload(@RequestParam("file") MultipartFile file, HttpServletRequest request) {
+        String sessionId = sessionId(request);
         try {
             if (file.isEmpty()) {
                 return ResponseEntity.badRequest().body(Map.of("error", "File is empty"));
             }
 
-            TaxDocumentResult result = taxDocumentService.extractTaxDocumentFromFile(file);
-            List<TaxDocumentResult> documents = List.of(result);
-            sessionDocuments.put(DEFAULT_SESSION, documents);
+            ExtractionOutcome outcome = taxDocumentService.extractTaxDocumentFromFile(sessionId, file);
+            TaxDocumentResult result = outcome.getResult();
+            List<TaxDocumentResult> documents = outcome.getResults();
+            String preview = previewUrl(baseUrl(), outcome.getDocumentId());
 
             Map<String, Object> response = Map.of(
                     "table", TaxDocumentExcelExporter.toTable(documents),
-                    "previews", List.of(generatePreview(file)),
+                    "previews", Collections.nCopies(documents.size(), preview),
                     "refresh", true,
                     "recipientName", result.getRecipient_name() != null ? result.getRecipient_name() : ""
             );
@@ -60,25 +81,41 @@ public class TaxDocumentController {
     }
 
     @PostMapping("/upload-multi")
-    public ResponseEntity<?> uploadMultiple(@RequestParam("files") List<MultipartFile> files) {
+    public ResponseEntity<?> uploadMultiple(@RequestParam("files") List<MultipartFile> files, HttpServletRequest request) {
+        String sessionId = sessionId(request);
         try {
             if (files == null || files.isEmpty()) {
                 return ResponseEntity.badRequest().body(Map.of("error", "No files provided"));
             }
 
-            List<TaxDocumentResult> results = taxDocumentService.extractTaxDocumentsFromFiles(files);
-            sessionDocuments.put(DEFAULT_SESSION, results);
+            List<ExtractionOutcome> outcomes = taxDocumentService.extractTaxDocumentsFromFiles(sessionId, files);
+            List<TaxDocumentResult> results = new ArrayList<>();
+            List<String> previews = new ArrayList<>();
+            List<Map<String, String>> failures = new ArrayList<>();
+            for (ExtractionOutcome outcome : outcomes) {
+                if (outcome.isSuccess()) {
+                    // Forms split from one packet share the packet's preview
+                    String preview = previewUrl(baseUrl(), outcome.getDocumentId());
+                    results.addAll(outcome.getResults());
+                    outcome.getResults().forEach(r -> previews.add(preview));
+                } else {
+                    failures.add(Map.of(
+                            "file", outcome.getFileName() != null ? outcome.getFileName() : "",
+                            "error", outcome.getError()));
+                }
+            }
+
+            if (results.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                        .body(Map.of("error", "None of the files could be processed", "failures", failures));
+            }
 
-            List<String> previews = files.stream()
-                    .map(this::generatePreviewSafe)
-                    .collect(Collectors.toList());
-            
-            String recipientName = results.isEmpty() ? "" : 
-                    (results.get(0).getRecipient_name() != null ? results.get(0).getRecipient_name() : "");
+            String recipientName = results.get(0).getRecipient_name() != null ? results.get(0).getRecipient_name() : "";
 
             Map<String, Object> response = Map.of(
                     "table", TaxDocumentExcelExporter.toTable(results),
                     "previews", previews,
+                    "failures", failures,
                     "refresh", true,
                     "recipientName", recipientName
             );
@@ -90,84 +127,260 @@ public class TaxDocumentController {
         }
     }
 
+    /**
+     * Everything that can be reported as an error body is checked before the first byte is
+     * written. Once streaming starts, a failure aborts the connection (see
+     * {@link ExportStreamException}).
+     */
     @GetMapping("/download")
-    public ResponseEntity<?> downloadExcel(HttpServletResponse response) {
-        try {
-            List<TaxDocumentResult> documents = sessionDocuments.get(DEFAULT_SESSION);
-            if (documents == null || documents.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                        .body(Map.of("error", "No documents available for download"));
-            }
+    public ResponseEntity<?> download(@RequestParam(value = "format", required = false) String format,
+                                      HttpServletRequest request) {
+        String sessionId = sessionId(request);
+        ExportWriter writer = exportWriter(format, request.getHeader("Accept"));
+        if (writer == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unsupported export format: " + format));
+        }
 
-            byte[] excel = TaxDocumentExcelExporter.toExcel(documents);
-            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-            response.setHeader("Content-Disposition", "attachment; filename=tax_documents.xlsx");
-            response.getOutputStream().write(excel);
-            return ResponseEntity.ok().build();
+        List<TaxDocumentResult> documents;
+        try {
+            documents = taxDocumentService.getExportDocuments(sessionId);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Failed to generate Excel: " + e.getMessage()));
+                    .body(Map.of("error", "Failed to generate export: " + e.getMessage()));
+        }
+        if (documents == null || documents.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "No documents available for download"));
         }
+
+        StreamingResponseBody body = out -> {
+            // Commit the headers first, so that a failing writer can no longer be turned into an error body
+            out.flush();
+            try {
+                writer.write(documents, out);
+            } catch (IOException | RuntimeException e) {
+                throw new ExportStreamException("Export to " + writer.format() + " failed mid-stream", e);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(writer.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=tax_documents." + writer.fileExtension())
+                .body(body);
     }
 
-    private String generatePreview(MultipartFile file) throws IOException {
-        String contentType = file.getContentType();
-        if (contentType == null) {
-            contentType = "application/octet-stream";
+    /**
+     * Picks the writer named by the format parameter, else the first one the Accept header asks
+     * for explicitly, else Excel. Returns null for an unknown format name.
+     */
+    private ExportWriter exportWriter(String format, String accept) {
+        if (format != null && !format.isBlank()) {
+            return exportWriters.stream()
+                    .filter(writer -> writer.format().equalsIgnoreCase(format.trim()))
+                    .findFirst()
+                    .orElse(null);
+        }
+        if (accept != null) {
+            try {
+                for (MediaType requested : MediaType.parseMediaTypes(accept)) {
+                    if (requested.isWildcardType() || requested.isWildcardSubtype()) {
+                        continue;
+                    }
+                    for (ExportWriter writer : exportWriters) {
+                        if (requested.isCompatibleWith(writer.mediaType())) {
+                            return writer;
+                        }
+                    }
+                }
+            } catch (IllegalArgumentException ignored) {
+                // Malformed Accept header: fall back to the default format
+            }
         }
+        return exportWriters.stream()
+                .filter(writer -> "xlsx".equals(writer.format()))
+                .findFirst()
+                .orElse(null);
+    }
 
-        if (contentType.startsWith("image/")) {
-            return encodeImageToBase64(file.getBytes(), contentType);
+    @GetMapping("/preview/{documentId}")
+    public ResponseEntity<byte[]> preview(@PathVariable String documentId, WebRequest request) {
+        PreviewStore.Preview preview = previewStore.get(documentId);
+        if (preview == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.checkNotModified(preview.etag())) {
+            return null;
         }
+        // Document ids are content digests, so a preview never changes once stored
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(1)).cachePrivate().immutable())
+                .eTag(preview.etag())
+                .body(preview.bytes());
+    }
 
-        if (isPdfFile(file, contentType)) {
-            return convertPdfToPreview(file.getBytes());
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@RequestParam("files") List<MultipartFile> files, HttpServletRequest request) throws IOException {
+        if (files == null || files.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No files provided"));
         }
 
-        return "/images/pdf-icon.png";
+        ExtractionJob job = taxDocumentService.submitExtractionJob(sessionId(request), files);
+
+        String jobUrl = baseUrl() + "/jobs/" + job.getId();
+        return ResponseEntity.accepted().body(Map.of(
+                "jobId", job.getId(),
+                "status", job.getStatus(),
+                "statusUrl", jobUrl,
+                "eventsUrl", jobUrl + "/events"
+        ));
     }
 
-    private String generatePreviewSafe(MultipartFile file) {
-        try {
-            return generatePreview(file);
-        } catch (Exception e) {
-            return "/images/pdf-icon.png";
+    /**
+     * Jobs of other sessions are reported as unknown, the same as expired ones.
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<?> getJob(@PathVariable String jobId, HttpServletRequest request) {
+        ExtractionJob job = taxDocumentService.getExtractionJob(sessionId(request), jobId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Unknown job: " + jobId));
         }
+        return ResponseEntity.ok(jobView(job, baseUrl()));
     }
 
-    private boolean isPdfFile(MultipartFile file, String contentType) {
-        if ("application/pdf".equalsIgnoreCase(contentType)) {
+    @GetMapping(path = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJob(@PathVariable String jobId, HttpServletRequest request) {
+        String sessionId = sessionIdOrNull(request);
+        if (sessionId == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        ExtractionJob job = taxDocumentService.getExtractionJob(sessionId, jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String baseUrl = baseUrl();
+        SseEmitter emitter = new SseEmitter(JOB_EVENTS_TIMEOUT.toMillis());
+        ExtractionJob.Listener listener = new ExtractionJob.Listener() {
+            @Override
+            public void onDocument(ExtractionJob source, int index, ExtractionOutcome outcome) {
+                sendEvent(emitter, this, source, "document", documentView(index, outcome, baseUrl));
+            }
+
+            @Override
+            public void onComplete(ExtractionJob source) {
+                if (sendEvent(emitter, this, source, "completed", jobView(source, baseUrl))) {
+                    emitter.complete();
+                }
+            }
+        };
+        emitter.onCompletion(() -> job.unsubscribe(listener));
+        emitter.onTimeout(() -> job.unsubscribe(listener));
+        job.subscribe(listener);
+        return ResponseEntity.ok(emitter);
+    }
+
+    private boolean sendEvent(SseEmitter emitter, ExtractionJob.Listener listener, ExtractionJob job, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
             return true;
+        } catch (IOException | IllegalStateException e) {
+            job.unsubscribe(listener);
+            emitter.completeWithError(e);
+            return false;
         }
-        String filename = file.getOriginalFilename();
-        return filename != null && filename.toLowerCase().endsWith(".pdf");
     }
 
-    private String encodeImageToBase64(byte[] imageBytes, String contentType) {
-        String base64 = Base64.getEncoder().encodeToString(imageBytes);
-        return "data:" + contentType + ";base64," + base64;
+    private Map<String, Object> jobView(ExtractionJob job, String baseUrl) {
+        List<ExtractionOutcome> outcomes = job.getOutcomes();
+        List<Map<String, Object>> documents = new ArrayList<>();
+        for (int i = 0; i < outcomes.size(); i++) {
+            documents.add(outcomes.get(i) != null
+                    ? documentView(i, outcomes.get(i), baseUrl)
+                    : Map.of("index", i, "file", job.getFileNames().get(i), "status", "pending"));
+        }
+
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("jobId", job.getId());
+        view.put("status", job.getStatus());
+        view.put("total", outcomes.size());
+        view.put("finished", job.getFinished());
+        view.put("documents", documents);
+        if (job.getStatus() == ExtractionJob.Status.COMPLETED) {
+            List<TaxDocumentResult> results = new ArrayList<>();
+            List<String> previews = new ArrayList<>();
+            for (ExtractionOutcome outcome : outcomes) {
+                if (outcome != null && outcome.isSuccess()) {
+                    String preview = previewUrl(baseUrl, outcome.getDocumentId());
+                    results.addAll(outcome.getResults());
+                    outcome.getResults().forEach(r -> previews.add(preview));
+                }
+            }
+            view.put("table", TaxDocumentExcelExporter.toTable(results));
+            view.put("previews", previews);
+            view.put("recipientName", results.isEmpty() || results.get(0).getRecipient_name() == null
+                    ? "" : results.get(0).getRecipient_name());
+        }
+        return view;
+    }
+
+    private Map<String, Object> documentView(int index, ExtractionOutcome outcome, String baseUrl) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("index", index);
+        view.put("file", outcome.getFileName() != null ? outcome.getFileName() : "");
+        if (outcome.isSuccess()) {
+            view.put("status", "done");
+            view.put("rows", TaxDocumentExcelExporter.toTable(outcome.getResults()));
+            view.put("preview", previewUrl(baseUrl, outcome.getDocumentId()));
+        } else {
+            view.put("status", "failed");
+            view.put("error", outcome.getError());
+        }
+        return view;
     }
 
-    private String convertPdfToPreview(byte[] pdfBytes) throws IOException {
-        try (PDDocument doc = PDDocument.load(pdfBytes)) {
-            PDFRenderer renderer = new PDFRenderer(doc);
-            BufferedImage image = renderer.renderImageWithDPI(0, 180, ImageType.RGB);
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            ImageIO.write(image, "png", out);
-            String base64 = Base64.getEncoder().encodeToString(out.toByteArray());
-            return "data:image/png;base64," + base64;
+    /**
+     * Session id from the X-Session-Id header. Requests without a valid one are rejected with 400
+     * (see {@link InvalidSessionException}). Only the header is read: an id in the URL would end up
+     * in browser history and access logs.
+     */
+    private String sessionId(HttpServletRequest request) {
+        String sessionId = sessionIdOrNull(request);
+        if (sessionId == null) {
+            throw new InvalidSessionException("Missing or invalid " + SESSION_HEADER + " header");
         }
+        return sessionId;
+    }
+
+    /**
+     * For the event-stream endpoints, which answer a missing session with a bodiless 400 because
+     * a JSON error body cannot be written as text/event-stream.
+     */
+    private String sessionIdOrNull(HttpServletRequest request) {
+        String sessionId = request.getHeader(SESSION_HEADER);
+        return sessionId != null && SESSION_ID_PATTERN.matcher(sessionId).matches() ? sessionId : null;
+    }
+
+    private String baseUrl() {
+        return ServletUriComponentsBuilder.fromCurrentContextPath().toUriString();
+    }
+
+    private String previewUrl(String baseUrl, String documentId) {
+        if (!previewStore.contains(documentId)) {
+            return "/images/pdf-icon.png";
+        }
+        return baseUrl + "/preview/" + documentId;
     }
 
     @PostMapping("/analyze")
-    public ResponseEntity<?> analyze(@RequestBody AnalysisRequest request) {
+    public ResponseEntity<?> analyze(@RequestBody AnalysisRequest request, HttpServletRequest httpRequest) {
+        String sessionId = sessionId(httpRequest);
         try {
             System.out.println("[ANALYZE] Received request - employeeName: " + request.getEmployeeName() + ", question: " + request.getQuestion());
             if (request.getQuestion() == null) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Question is required"));
             }
 
-            String answer = taxDocumentService.chat(request.getEmployeeName(), request.getQuestion());
+            String answer = taxDocumentService.chat(sessionId, request.getEmployeeName(), request.getQuestion());
             System.out.println("[ANALYZE] Response received successfully");
             return ResponseEntity.ok(Map.of("answer", answer));
         } catch (Exception e) {
@@ -178,11 +391,30 @@ public class TaxDocumentController {
         }
     }
 
+    @PostMapping(path = "/analyze/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<String>>> analyzeStream(@RequestBody AnalysisRequest request, HttpServletRequest httpRequest) {
+        String sessionId = sessionIdOrNull(httpRequest);
+        if (sessionId == null || request.getQuestion() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(deltaEvents(taxDocumentService.chatStream(sessionId, request.getEmployeeName(), request.getQuestion())));
+    }
+
+    @GetMapping(path = "/summary/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<String>>> getSummaryStream(@RequestParam(required = false) String employeeName, HttpServletRequest request) {
+        String sessionId = sessionIdOrNull(request);
+        if (sessionId == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(deltaEvents(taxDocumentService.generateSummaryStream(sessionId, employeeName)));
+    }
+
     @GetMapping("/summary/{employeeName}")
-    public ResponseEntity<?> getSummary(@PathVariable(required = false) String employeeName) {
+    public ResponseEntity<?> getSummary(@PathVariable(required = false) String employeeName, HttpServletRequest request) {
+        String sessionId = sessionId(request);
         try {
             System.out.println("[SUMMARY] Received request with employeeName: " + employeeName);
-            String summary = taxDocumentService.generateSummary(employeeName);
+            String summary = taxDocumentService.generateSummary(sessionId, employeeName);
             System.out.println("[SUMMARY] Summary generated successfully");
             return ResponseEntity.ok(Map.of("summary", summary));
         } catch (Exception e) {
@@ -194,10 +426,11 @@ public class TaxDocumentController {
     }
     
     @GetMapping("/summary")
-    public ResponseEntity<?> getSummaryNoParam() {
+    public ResponseEntity<?> getSummaryNoParam(HttpServletRequest request) {
+        String sessionId = sessionId(request);
         try {
             System.out.println("[SUMMARY] Received request with no employeeName");
-            String summary = taxDocumentService.generateSummary(null);
+            String summary = taxDocumentService.generateSummary(sessionId, null);
             System.out.println("[SUMMARY] Summary generated successfully");
             return ResponseEntity.ok(Map.of("summary", summary));
         } catch (Exception e) {
@@ -209,13 +442,14 @@ public class TaxDocumentController {
     }
 
     @PostMapping("/chat/general")
-    public ResponseEntity<?> generalChat(@RequestBody AnalysisRequest request) {
+    public ResponseEntity<?> generalChat(@RequestBody AnalysisRequest request, HttpServletRequest httpRequest) {
+        String sessionId = sessionId(httpRequest);
         try {
             if (request.getQuestion() == null || request.getQuestion().trim().isEmpty()) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Question is required"));
             }
 
-            String answer = taxDocumentService.generalChat(request.getQuestion());
+            String answer = taxDocumentService.generalChat(sessionId, request.getQuestion());
             return ResponseEntity.ok(Map.of("answer", answer));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -223,10 +457,49 @@ public class TaxDocumentController {
         }
     }
 
+    @PostMapping(path = "/chat/general/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<String>>> generalChatStream(@RequestBody AnalysisRequest request, HttpServletRequest httpRequest) {
+        String sessionId = sessionIdOrNull(httpRequest);
+        if (sessionId == null || request.getQuestion() == null || request.getQuestion().trim().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(deltaEvents(taxDocumentService.generalChatStream(sessionId, request.getQuestion())));
+    }
+
+    @GetMapping(path = "/chat/general/summary/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<String>>> getGeneralChatSummaryStream(HttpServletRequest request) {
+        String sessionId = sessionIdOrNull(request);
+        if (sessionId == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(deltaEvents(taxDocumentService.generateGeneralChatSummaryStream(sessionId)));
+    }
+
+    /**
+     * Wraps each streamed token in a {@code delta} event with a JSON payload such as
+     * {@code {"delta":" world"}}. Raw tokens cannot be sent as SSE data because clients strip the
+     * space after "data:", which is the leading space of most tokens. A failure mid-stream ends
+     * with an {@code error} event instead of a dropped connection.
+     */
+    private Flux<ServerSentEvent<String>> deltaEvents(Flux<String> tokens) {
+        return tokens
+                .map(token -> sseEvent("delta", Map.of("delta", token)))
+                .onErrorResume(e -> Flux.just(sseEvent("error", Map.of("error", "Failed to stream answer: " + e.getMessage()))));
+    }
+
+    private ServerSentEvent<String> sseEvent(String name, Map<String, String> payload) {
+        try {
+            return ServerSentEvent.builder(objectMapper.writeValueAsString(payload)).event(name).build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize stream event", e);
+        }
+    }
+
     @GetMapping("/chat/general/summary")
-    public ResponseEntity<?> getGeneralChatSummary() {
+    public ResponseEntity<?> getGeneralChatSummary(HttpServletRequest request) {
+        String sessionId = sessionId(request);
         try {
-            String summary = taxDocumentService.generateGeneralChatSummary();
+            String summary = taxDocumentService.generateGeneralChatSummary(sessionId);
             return ResponseEntity.ok(Map.of("summary", summary));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -0,0 +1,12 @@
+package com.mohbility.springai.exception;
+
+/**
+ * An export failed after its response headers were sent. There is no way to report an error on a
+ * committed response, so this is rethrown and the container aborts the connection; the client sees
+ * a truncated download instead of an error body appended to the file.
+ */
+public class ExportStreamException extends RuntimeException {
+    public ExportStreamException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,5 +1,6 @@
 package com.mohbility.springai.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -17,6 +18,32 @@ public class GlobalExceptionHandler {
                 .body(Map.of("error", e.getMessage()));
     }
 
+    @ExceptionHandler(InvalidSessionException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidSession(InvalidSessionException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(JobQueueFullException.class)
+    public ResponseEntity<Map<String, String>> handleJobQueueFull(JobQueueFullException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "10")
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(ModelUnavailableException.class)
+    public ResponseEntity<Map<String, String>> handleModelUnavailable(ModelUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(ExportStreamException.class)
+    public void handleExportStreamFailure(ExportStreamException e) {
+        // Not handled: the generic handler below would try to append JSON to the partial download
+        throw e;
+    }
+
     @ExceptionHandler(MaxUploadSizeExceededException.class)
     public ResponseEntity<Map<String, String>> handleMaxUploadSizeExceeded(MaxUploadSizeExceededException e) {
         return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
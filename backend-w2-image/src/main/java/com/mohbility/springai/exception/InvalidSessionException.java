@@ -0,0 +1,11 @@
+package com.mohbility.springai.exception;
+
+/**
+ * The request carries no usable X-Session-Id header. Rejected rather than served from a shared
+ * session, which would mix one client's documents and chats with another's.
+ */
+public class InvalidSessionException extends RuntimeException {
+    public InvalidSessionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.mohbility.springai.exception;
+
+import org.springframework.ai.retry.NonTransientAiException;
+
+/**
+ * Thrown instead of calling the model while its circuit breaker is open. Non-transient, so the
+ * retry template fails fast instead of retrying into an outage.
+ */
+public class ModelUnavailableException extends NonTransientAiException {
+    public ModelUnavailableException(String message) {
+        super(message);
+    }
+}
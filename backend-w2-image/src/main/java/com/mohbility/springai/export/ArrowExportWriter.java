@@ -0,0 +1,114 @@
+package com.mohbility.springai.export;
+
+import com.mohbility.springai.model.TaxDocumentResult;
+import com.mohbility.springai.utils.ColumnSchema;
+import com.mohbility.springai.utils.TaxDocumentColumns;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Arrow IPC stream with one typed column per export column, written in record batches. Pandas,
+ * Polars, DuckDB and Spark read it without parsing, and it converts to Parquet losslessly.
+ * <p>
+ * JVM requirement: Arrow's off-heap allocator reflects into {@code java.nio}, so the JVM must run
+ * with {@code --add-opens=java.base/java.nio=ALL-UNNAMED}. build.gradle passes it to bootRun and
+ * test, and the boot jar declares {@code Add-Opens: java.base/java.nio} in its manifest. Launching
+ * the classes any other way (an IDE run configuration, a custom container entrypoint) needs the
+ * flag added by hand, otherwise only this format fails, when the first allocator is created.
+ * It is the only reason the application opens the module.
+ */
+@Component
+public class ArrowExportWriter implements ExportWriter {
+
+    private static final MediaType ARROW_STREAM = MediaType.parseMediaType("application/vnd.apache.arrow.stream");
+    private static final int BATCH_ROWS = 1024;
+    private static final Schema SCHEMA = schema(TaxDocumentColumns.EXPORT);
+
+    @Override
+    public String format() {
+        return "arrow";
+    }
+
+    @Override
+    public MediaType mediaType() {
+        return ARROW_STREAM;
+    }
+
+    @Override
+    public String fileExtension() {
+        return "arrows";
+    }
+
+    @Override
+    public void write(List<TaxDocumentResult> documents, OutputStream out) throws IOException {
+        List<ColumnSchema.Column<TaxDocumentResult>> columns = TaxDocumentColumns.EXPORT.columns();
+        try (BufferAllocator allocator = new RootAllocator();
+             VectorSchemaRoot root = VectorSchemaRoot.create(SCHEMA, allocator);
+             ArrowStreamWriter writer = new ArrowStreamWriter(root, null, Channels.newChannel(StreamUtils.nonClosing(out)))) {
+            writer.start();
+            for (int from = 0; from < documents.size(); from += BATCH_ROWS) {
+                List<TaxDocumentResult> batch = documents.subList(from, Math.min(documents.size(), from + BATCH_ROWS));
+                root.allocateNew();
+                for (int c = 0; c < columns.size(); c++) {
+                    fill(columns.get(c), root.getVector(c), batch);
+                }
+                root.setRowCount(batch.size());
+                writer.writeBatch();
+            }
+            writer.end();
+        }
+    }
+
+    private static void fill(ColumnSchema.Column<TaxDocumentResult> column, FieldVector vector, List<TaxDocumentResult> rows) {
+        for (int i = 0; i < rows.size(); i++) {
+            TaxDocumentResult doc = rows.get(i);
+            switch (column.type()) {
+                case TEXT -> {
+                    String text = column.text(doc);
+                    if (text == null) {
+                        ((VarCharVector) vector).setNull(i);
+                    } else {
+                        ((VarCharVector) vector).setSafe(i, text.getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+                case NUMBER -> ((Float8Vector) vector).setSafe(i, column.number(doc));
+                case INTEGER -> ((IntVector) vector).setSafe(i, column.integer(doc));
+            }
+        }
+    }
+
+    private static Schema schema(ColumnSchema<TaxDocumentResult> columns) {
+        List<Field> fields = new ArrayList<>(columns.size());
+        for (ColumnSchema.Column<TaxDocumentResult> column : columns.columns()) {
+            ArrowType type = switch (column.type()) {
+                case TEXT -> ArrowType.Utf8.INSTANCE;
+                case NUMBER -> new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+                case INTEGER -> new ArrowType.Int(32, true);
+            };
+            // Numeric columns always carry a value: missing amounts export as zero
+            fields.add(new Field(column.header(), new FieldType(column.type() == ColumnSchema.Type.TEXT, type, null), null));
+        }
+        return new Schema(fields);
+    }
+}
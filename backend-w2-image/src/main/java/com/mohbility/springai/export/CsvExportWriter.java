@@ -0,0 +1,78 @@
+package com.mohbility.springai.export;
+
+import com.mohbility.springai.model.TaxDocumentResult;
+import com.mohbility.springai.utils.ColumnSchema;
+import com.mohbility.springai.utils.TaxDocumentColumns;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV, written row by row straight to the output stream.
+ */
+@Component
+public class CsvExportWriter implements ExportWriter {
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    @Override
+    public String format() {
+        return "csv";
+    }
+
+    @Override
+    public MediaType mediaType() {
+        return TEXT_CSV;
+    }
+
+    @Override
+    public String fileExtension() {
+        return "csv";
+    }
+
+    @Override
+    public void write(List<TaxDocumentResult> documents, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        ColumnSchema<TaxDocumentResult> schema = TaxDocumentColumns.EXPORT;
+        for (int i = 0; i < schema.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeField(writer, schema.get(i).header());
+        }
+        writer.write("\r\n");
+
+        for (TaxDocumentResult doc : documents) {
+            for (int i = 0; i < schema.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeField(writer, schema.get(i).text(doc));
+            }
+            writer.write("\r\n");
+        }
+        writer.flush();
+    }
+
+    private static void writeField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
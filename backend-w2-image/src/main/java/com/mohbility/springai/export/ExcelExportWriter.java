@@ -0,0 +1,36 @@
+package com.mohbility.springai.export;
+
+import com.mohbility.springai.model.TaxDocumentResult;
+import com.mohbility.springai.utils.TaxDocumentExcelExporter;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+@Component
+public class ExcelExportWriter implements ExportWriter {
+
+    private static final MediaType XLSX = MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+    @Override
+    public String format() {
+        return "xlsx";
+    }
+
+    @Override
+    public MediaType mediaType() {
+        return XLSX;
+    }
+
+    @Override
+    public String fileExtension() {
+        return "xlsx";
+    }
+
+    @Override
+    public void write(List<TaxDocumentResult> documents, OutputStream out) throws IOException {
+        TaxDocumentExcelExporter.writeExcel(documents, out);
+    }
+}
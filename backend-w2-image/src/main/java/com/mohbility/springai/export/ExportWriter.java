@@ -0,0 +1,24 @@
+package com.mohbility.springai.export;
+
+import com.mohbility.springai.model.TaxDocumentResult;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes extracted documents in one download format. Implementations are Spring beans and are
+ * selected by the {@code format} query parameter or the request's Accept header.
+ */
+public interface ExportWriter {
+
+    /** Short name used in the {@code format} query parameter, e.g. "csv". */
+    String format();
+
+    MediaType mediaType();
+
+    String fileExtension();
+
+    void write(List<TaxDocumentResult> documents, OutputStream out) throws IOException;
+}
@@ -0,0 +1,62 @@
+package com.mohbility.springai.export;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.mohbility.springai.model.TaxDocumentResult;
+import com.mohbility.springai.utils.ColumnSchema;
+import com.mohbility.springai.utils.TaxDocumentColumns;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Newline-delimited JSON with typed values, one object per document. Warehouse bulk loaders
+ * ingest it directly, without the parsing ambiguity of CSV.
+ */
+@Component
+public class JsonLinesExportWriter implements ExportWriter {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Override
+    public String format() {
+        return "ndjson";
+    }
+
+    @Override
+    public MediaType mediaType() {
+        return NDJSON;
+    }
+
+    @Override
+    public String fileExtension() {
+        return "ndjson";
+    }
+
+    @Override
+    public void write(List<TaxDocumentResult> documents, OutputStream out) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            generator.setRootValueSeparator(null);
+            for (TaxDocumentResult doc : documents) {
+                generator.writeStartObject();
+                for (ColumnSchema.Column<TaxDocumentResult> column : TaxDocumentColumns.EXPORT.columns()) {
+                    generator.writeFieldName(column.header());
+                    switch (column.type()) {
+                        case TEXT -> generator.writeString(column.text(doc));
+                        case NUMBER -> generator.writeNumber(column.number(doc));
+                        case INTEGER -> generator.writeNumber(column.integer(doc));
+                    }
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.mohbility.springai.model;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Result of extracting one uploaded file. A packet may hold several forms, so a successful
+ * outcome carries one result per form, all sharing the file's document id.
+ */
+@Getter
+public class ExtractionOutcome {
+    private final String fileName;
+    private final String documentId;
+    private final List<TaxDocumentResult> results;
+    private final String error;
+
+    private ExtractionOutcome(String fileName, String documentId, List<TaxDocumentResult> results, String error) {
+        this.fileName = fileName;
+        this.documentId = documentId;
+        this.results = results;
+        this.error = error;
+    }
+
+    public static ExtractionOutcome success(String fileName, String documentId, List<TaxDocumentResult> results) {
+        return new ExtractionOutcome(fileName, documentId, List.copyOf(results), null);
+    }
+
+    public static ExtractionOutcome failure(String fileName, String error) {
+        return new ExtractionOutcome(fileName, null, List.of(), error);
+    }
+
+    public boolean isSuccess() {
+        return !results.isEmpty();
+    }
+
+    /**
+     * First form in the file, or null for a failed outcome.
+     */
+    public TaxDocumentResult getResult() {
+        return results.isEmpty() ? null : results.get(0);
+    }
+}
@@ -0,0 +1,24 @@
+package com.mohbility.springai.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * How the pages of a multi-page upload group into individual forms, as returned by the page
+ * classification call. Page numbers are 1-based.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class PacketLayout {
+    private List<FormSegment> forms;
+    private List<Integer> skipped_pages;
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class FormSegment {
+        private String form_type; // "W2", "1099-NEC" or "OTHER"
+        private List<Integer> pages;
+    }
+}
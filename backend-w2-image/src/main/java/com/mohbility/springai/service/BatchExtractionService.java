@@ -0,0 +1,104 @@
+package com.mohbility.springai.service;
+
+import com.mohbility.springai.exception.TaxDocumentException;
+import com.mohbility.springai.model.ExtractionOutcome;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs extraction for a batch of files on virtual threads. A semaphore caps how many
+ * model calls are in flight at once, and outcomes are returned in the original file order.
+ */
+@Service
+public class BatchExtractionService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchExtractionService.class);
+
+    private final TaxDocumentExtractionService taxDocumentExtractionService;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+
+    public BatchExtractionService(
+            TaxDocumentExtractionService taxDocumentExtractionService,
+            @Value("${openai.extraction.max-concurrency:4}") int maxConcurrency
+    ) {
+        this.taxDocumentExtractionService = taxDocumentExtractionService;
+        this.permits = new Semaphore(Math.max(1, maxConcurrency), true);
+    }
+
+    public List<ExtractionOutcome> extractAll(List<MultipartFile> files, DocumentIndex documentIndex) {
+        return extractAll(files, documentIndex, (index, outcome) -> { });
+    }
+
+    /**
+     * Same as {@link #extractAll(List, DocumentIndex)}, but reports each outcome as soon as its file finishes.
+     */
+    public List<ExtractionOutcome> extractAll(List<MultipartFile> files, DocumentIndex documentIndex,
+                                              BiConsumer<Integer, ExtractionOutcome> onEach) {
+        List<Future<ExtractionOutcome>> futures = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            int index = i;
+            MultipartFile file = files.get(i);
+            futures.add(executor.submit(() -> {
+                ExtractionOutcome outcome = extractOne(file, documentIndex);
+                onEach.accept(index, outcome);
+                return outcome;
+            }));
+        }
+
+        List<ExtractionOutcome> outcomes = new ArrayList<>(files.size());
+        for (int i = 0; i < futures.size(); i++) {
+            outcomes.add(await(futures.get(i), files.get(i).getOriginalFilename()));
+        }
+        return outcomes;
+    }
+
+    private ExtractionOutcome extractOne(MultipartFile file, DocumentIndex documentIndex) {
+        String fileName = file.getOriginalFilename();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ExtractionOutcome.failure(fileName, "Extraction was interrupted");
+        }
+        try {
+            return taxDocumentExtractionService.extractFromFile(file, documentIndex);
+        } catch (TaxDocumentException e) {
+            log.warn("Extraction failed for {}: {}", fileName, e.getMessage());
+            return ExtractionOutcome.failure(fileName, e.getMessage());
+        } finally {
+            permits.release();
+        }
+    }
+
+    private ExtractionOutcome await(Future<ExtractionOutcome> future, String fileName) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return ExtractionOutcome.failure(fileName, "Extraction was interrupted");
+        } catch (ExecutionException e) {
+            log.error("Unexpected extraction error for {}", fileName, e.getCause());
+            return ExtractionOutcome.failure(fileName, "Unexpected error: " + e.getCause().getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
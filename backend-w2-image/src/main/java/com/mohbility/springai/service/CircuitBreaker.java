@@ -0,0 +1,85 @@
+package com.mohbility.springai.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Consecutive-failure circuit breaker for one kind of outbound model call. After
+ * {@code failureThreshold} failures in a row the circuit opens and calls fail fast for
+ * {@code openDuration}; then a single trial call is let through, and its outcome closes the
+ * circuit again or reopens it.
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long trialStartedAt;
+    private long rejected;
+
+    CircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Whether a call may go out now. A false return means the circuit is open and the caller
+     * should fail fast without contacting the upstream.
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        // A trial abandoned without an outcome (cancelled, interrupted) must not block the circuit forever
+        if (state == State.HALF_OPEN && (!trialInFlight || System.nanoTime() - trialStartedAt >= openNanos)) {
+            trialInFlight = true;
+            trialStartedAt = System.nanoTime();
+            return true;
+        }
+        rejected++;
+        return false;
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            trialInFlight = false;
+        }
+    }
+
+    String name() {
+        return name;
+    }
+
+    synchronized Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state.name());
+        stats.put("consecutiveFailures", consecutiveFailures);
+        stats.put("rejectedCalls", rejected);
+        return stats;
+    }
+}
@@ -0,0 +1,204 @@
+package com.mohbility.springai.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Chat memory with a token-budget window and background compaction. Each turn only sees the
+ * running summary plus the most recent messages that fit {@code window-tokens}; once a
+ * conversation's stored history passes {@code compact-threshold-tokens}, the turns that have
+ * fallen out of the window are folded into the summary off the request path. Token counts are
+ * estimated at four characters per token. The summary is stored as a user message: the memory
+ * advisor moves the first system message to the front of the prompt, and a per-conversation
+ * summary there would displace the static system prompt and defeat provider-side prompt caching.
+ */
+@Service
+public class CompactingChatMemory implements ChatMemory {
+
+    private static final Logger log = LoggerFactory.getLogger(CompactingChatMemory.class);
+    private static final String SUMMARY_PREFIX = "Summary of the earlier conversation with this client:\n";
+    private static final String COMPACTION_PROMPT =
+            "Condense the following tax intake conversation into a compact summary for the advisor who continues it.\n" +
+            "Keep every fact the client stated (names, marital status, dependents, living and support arrangements, " +
+            "income sources, amounts, dates) and list the questions that have already been asked and answered, " +
+            "so they are not asked again. Write plain sentences, no preamble.";
+    private static final String COMPACTION_INPUT = "EARLIER SUMMARY:\n%s\n\nCONVERSATION:\n%s";
+
+    private final PersistentChatMemoryRepository repository;
+    private final ChatClient summarizer;
+    private final PromptCacheMetrics promptCacheMetrics;
+    private final int windowTokens;
+    private final int compactThresholdTokens;
+    private final ExecutorService compactor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+    private final Set<String> compacting = ConcurrentHashMap.newKeySet();
+
+    public CompactingChatMemory(
+            PersistentChatMemoryRepository repository,
+            OpenAiClientFactory clientFactory,
+            PromptCacheMetrics promptCacheMetrics,
+            @Value("${openai.chat-memory.window-tokens:3000}") int windowTokens,
+            @Value("${openai.chat-memory.compact-threshold-tokens:6000}") int compactThresholdTokens
+    ) {
+        this.repository = repository;
+        this.summarizer = clientFactory.builder(OpenAiClientFactory.CallType.CHAT).build();
+        this.promptCacheMetrics = promptCacheMetrics;
+        this.windowTokens = windowTokens;
+        this.compactThresholdTokens = Math.max(compactThresholdTokens, windowTokens);
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        List<Message> history;
+        synchronized (lock(conversationId)) {
+            history = new ArrayList<>(repository.findByConversationId(conversationId));
+            history.addAll(messages);
+            repository.saveAll(conversationId, history);
+        }
+        if (estimateTokens(history) > compactThresholdTokens && compacting.add(conversationId)) {
+            compactor.execute(() -> {
+                try {
+                    compact(conversationId);
+                } catch (RuntimeException e) {
+                    log.warn("Chat memory compaction failed for {}: {}", conversationId, e.getMessage());
+                } finally {
+                    compacting.remove(conversationId);
+                }
+            });
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        List<Message> history = repository.findByConversationId(conversationId);
+        int start = windowStart(history);
+        if (start == 0 || !isSummary(history.get(0))) {
+            return history.subList(start, history.size());
+        }
+        List<Message> window = new ArrayList<>(history.size() - start + 1);
+        window.add(history.get(0));
+        window.addAll(history.subList(start, history.size()));
+        return window;
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        synchronized (lock(conversationId)) {
+            repository.deleteByConversationId(conversationId);
+        }
+        locks.remove(conversationId);
+    }
+
+    /**
+     * Frees a conversation's in-memory state when its session is evicted. Unlike {@link #clear},
+     * the stored history is kept, so the conversation resumes where it left off.
+     */
+    public void release(String conversationId) {
+        synchronized (lock(conversationId)) {
+            repository.evict(conversationId);
+        }
+        locks.remove(conversationId);
+    }
+
+    /**
+     * Replaces the summary and every message before the current window with a new summary. The
+     * model call runs without holding the lock; messages added meanwhile are kept, and the result
+     * is discarded if the conversation was cleared or rewritten in the meantime.
+     */
+    private void compact(String conversationId) {
+        List<Message> snapshot = repository.findByConversationId(conversationId);
+        int start = windowStart(snapshot);
+        boolean hasSummary = !snapshot.isEmpty() && isSummary(snapshot.get(0));
+        List<Message> older = snapshot.subList(hasSummary ? 1 : 0, start);
+        if (older.isEmpty()) {
+            return;
+        }
+
+        String previousSummary = hasSummary ? snapshot.get(0).getText().substring(SUMMARY_PREFIX.length()) : "(none)";
+        String transcript = older.stream()
+                .filter(message -> message.getMessageType() != MessageType.SYSTEM)
+                .map(message -> (message.getMessageType() == MessageType.USER ? "Client: " : "Advisor: ") + message.getText())
+                .collect(Collectors.joining("\n"));
+        String summary = promptCacheMetrics.content("chat-compaction", summarizer.prompt()
+                .system(COMPACTION_PROMPT)
+                .user(String.format(COMPACTION_INPUT, previousSummary, transcript))
+                .advisors(a -> a.param(ModelCallScheduler.PRIORITY, ModelCallScheduler.Priority.BATCH)
+                        .param(ModelCallScheduler.SESSION_KEY, conversationId))
+                .call()
+                .chatResponse());
+        if (summary == null || summary.isBlank()) {
+            return;
+        }
+
+        synchronized (lock(conversationId)) {
+            List<Message> current = repository.findByConversationId(conversationId);
+            if (current.size() < start || !current.subList(0, start).equals(snapshot.subList(0, start))) {
+                return;
+            }
+            List<Message> compacted = new ArrayList<>(current.size() - start + 1);
+            compacted.add(new UserMessage(SUMMARY_PREFIX + summary.strip()));
+            compacted.addAll(current.subList(start, current.size()));
+            repository.saveAll(conversationId, compacted);
+        }
+        log.info("Compacted {} message(s) of conversation {} into a summary", older.size(), conversationId);
+    }
+
+    /**
+     * Index of the oldest message in the window: the newest messages that fit the token budget,
+     * always including the latest one.
+     */
+    private int windowStart(List<Message> history) {
+        int floor = !history.isEmpty() && isSummary(history.get(0)) ? 1 : 0;
+        int budget = windowTokens - (floor == 1 ? estimateTokens(history.get(0)) : 0);
+        int start = history.size();
+        while (start > floor) {
+            int tokens = estimateTokens(history.get(start - 1));
+            if (start < history.size() && tokens > budget) {
+                break;
+            }
+            budget -= tokens;
+            start--;
+        }
+        return start;
+    }
+
+    private static boolean isSummary(Message message) {
+        return message.getMessageType() == MessageType.USER && message.getText() != null
+                && message.getText().startsWith(SUMMARY_PREFIX);
+    }
+
+    private static int estimateTokens(List<Message> messages) {
+        return messages.stream().mapToInt(CompactingChatMemory::estimateTokens).sum();
+    }
+
+    private static int estimateTokens(Message message) {
+        String text = message.getText();
+        return (text != null ? text.length() + 3 : 0) / 4 + 4;
+    }
+
+    private Object lock(String conversationId) {
+        return locks.computeIfAbsent(conversationId, id -> new Object());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compactor.shutdownNow();
+    }
+}
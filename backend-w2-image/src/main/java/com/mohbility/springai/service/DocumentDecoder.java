@@ -0,0 +1,207 @@
+package com.mohbility.springai.service;
+
+import com.mohbility.springai.service.ImagePreprocessor.PreparedImage;
+import com.mohbility.springai.service.PagePreClassifier.PageLabel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single decoding pass over an upload. A PDF is parsed and rasterized once, and the same pass
+ * yields both the model-ready page images and the preview thumbnail. PDF pages are triaged by
+ * {@link PagePreClassifier} as they are rendered, and only forwarded pages are encoded (see
+ * {@link #decodePdf} for the one exception). Pages whose text layer carries form values are
+ * encoded on first use, since their text may be all the model needs.
+ */
+@Service
+public class DocumentDecoder {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentDecoder.class);
+    private static final String DEFAULT_MIME_TYPE = "image/jpeg";
+
+    private final PdfRasterizer pdfRasterizer;
+    private final ImagePreprocessor imagePreprocessor;
+    private final PagePreClassifier pagePreClassifier;
+
+    public DocumentDecoder(PdfRasterizer pdfRasterizer, ImagePreprocessor imagePreprocessor, PagePreClassifier pagePreClassifier) {
+        this.pdfRasterizer = pdfRasterizer;
+        this.imagePreprocessor = imagePreprocessor;
+        this.pagePreClassifier = pagePreClassifier;
+    }
+
+    /**
+     * One model-ready page. {@code text} is the PDF text layer (empty for scans and images),
+     * {@code hash} its {@link PerceptualHash} (null when the image could not be decoded), and
+     * {@code classificationImage} the small rendition used to split multi-page PDFs (null otherwise).
+     * <p>
+     * A deferred page keeps its raster and prepares the image on the first {@link #image()} call,
+     * then drops the raster. A page that is answered from its text layer is never encoded.
+     */
+    public static final class DecodedPage {
+
+        @FunctionalInterface
+        interface ImageSource {
+            PreparedImage prepare() throws IOException;
+        }
+
+        private final String text;
+        private final long[] hash;
+        private final PreparedImage classificationImage;
+        private ImageSource source;
+        private PreparedImage image;
+
+        public DecodedPage(PreparedImage image, String text, long[] hash, PreparedImage classificationImage) {
+            this(text, hash, classificationImage);
+            this.image = image;
+        }
+
+        private DecodedPage(String text, long[] hash, PreparedImage classificationImage) {
+            this.text = text;
+            this.hash = hash;
+            this.classificationImage = classificationImage;
+        }
+
+        static DecodedPage deferred(ImageSource source, String text, long[] hash, PreparedImage classificationImage) {
+            DecodedPage page = new DecodedPage(text, hash, classificationImage);
+            page.source = source;
+            return page;
+        }
+
+        public synchronized PreparedImage image() throws IOException {
+            if (image == null) {
+                image = source.prepare();
+                source = null;
+            }
+            return image;
+        }
+
+        synchronized boolean isImagePrepared() {
+            return image != null;
+        }
+
+        public String text() {
+            return text;
+        }
+
+        public long[] hash() {
+            return hash;
+        }
+
+        public PreparedImage classificationImage() {
+            return classificationImage;
+        }
+    }
+
+    public record DecodedDocument(List<DecodedPage> pages, byte[] thumbnail) {
+    }
+
+    public DecodedDocument decode(MultipartFile file) throws IOException {
+        if (isPdf(file)) {
+            return decodePdf(file, Integer.MAX_VALUE, true, true);
+        }
+        byte[] imageBytes = file.getBytes();
+        MimeType mimeType = MimeTypeUtils.parseMimeType(file.getContentType() != null ? file.getContentType() : DEFAULT_MIME_TYPE);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageBytes));
+        if (image == null) {
+            PreparedImage original = new PreparedImage(imageBytes, mimeType, imageBytes.length);
+            return new DecodedDocument(List.of(new DecodedPage(original, "", null, null)), null);
+        }
+        DecodedPage page = new DecodedPage(
+                imagePreprocessor.prepareUpload(image, imageBytes, mimeType), "", PerceptualHash.of(image), null);
+        return new DecodedDocument(List.of(page), imagePreprocessor.thumbnail(image));
+    }
+
+    /**
+     * Renders only what the preview needs, for uploads whose extraction was served from cache.
+     */
+    public byte[] decodeThumbnail(MultipartFile file) throws IOException {
+        if (isPdf(file)) {
+            return decodePdf(file, 1, false, false).thumbnail();
+        }
+        try (InputStream in = file.getInputStream()) {
+            BufferedImage image = ImageIO.read(in);
+            return image != null ? imagePreprocessor.thumbnail(image) : null;
+        }
+    }
+
+    public static boolean isPdf(MultipartFile file) {
+        String type = file.getContentType();
+        String name = file.getOriginalFilename();
+        return "application/pdf".equalsIgnoreCase(type) ||
+                (name != null && name.toLowerCase().endsWith(".pdf"));
+    }
+
+    /**
+     * With {@code triage}, pages rejected before the first forwarded one are prepared anyway and
+     * kept aside: when triage rejects every page the model looks at them all rather than the
+     * upload failing, without rendering the PDF a second time. Usually the first page is
+     * forwarded and nothing is kept.
+     */
+    private DecodedDocument decodePdf(MultipartFile file, int maxPages, boolean preparePages, boolean triage) throws IOException {
+        List<DecodedPage> pages = new ArrayList<>();
+        List<DecodedPage> rejected = new ArrayList<>();
+        long fileSize = file.getSize();
+        byte[][] thumbnail = new byte[1][];
+        PagePreClassifier.PageFilter filter = pagePreClassifier.newDocument();
+        Map<PageLabel, Integer> labels = new EnumMap<>(PageLabel.class);
+        try (InputStream in = file.getInputStream()) {
+            pdfRasterizer.rasterize(in, imagePreprocessor.pdfDpi(), maxPages, preparePages, (pageIndex, pageCount, image, text) -> {
+                if (pageIndex == 0) {
+                    thumbnail[0] = imagePreprocessor.thumbnail(image);
+                }
+                if (!preparePages) {
+                    return;
+                }
+                long[] hash = PerceptualHash.of(image);
+                PageLabel label = triage ? filter.classify(image, text, hash) : PageLabel.UNKNOWN;
+                labels.merge(label, 1, Integer::sum);
+                if (label.isForwarded()) {
+                    rejected.clear();
+                    pages.add(decodedPage(image, text, hash, pageCount, fileSize));
+                } else if (pages.isEmpty()) {
+                    rejected.add(decodedPage(image, text, hash, pageCount, fileSize));
+                }
+            });
+        }
+        if (triage) {
+            log.info("Page triage for {}: {}", file.getOriginalFilename(), labels);
+            if (pages.isEmpty() && !rejected.isEmpty()) {
+                log.info("No pages of {} passed local triage, sending all pages", file.getOriginalFilename());
+                return new DecodedDocument(rejected, thumbnail[0]);
+            }
+        }
+        return new DecodedDocument(pages, thumbnail[0]);
+    }
+
+    /**
+     * A PDF page has no source bytes of its own, so it is credited with an even share of the PDF.
+     * Pages without form values in their text layer always go to the model as images and are
+     * encoded right away; the others hold their raster until {@link DecodedPage#image()}.
+     */
+    private DecodedPage decodedPage(BufferedImage image, String text, long[] hash, int pageCount, long fileSize) throws IOException {
+        String pageText = text != null ? text : "";
+        long originalBytes = fileSize / Math.max(1, pageCount);
+        PreparedImage classificationImage = pageCount > 1 ? imagePreprocessor.classificationImage(image) : null;
+        if (PagePreClassifier.hasFormValues(pageText)) {
+            return DecodedPage.deferred(
+                    () -> imagePreprocessor.prepare(image, ImagePreprocessor.SourceKind.PDF_PAGE, originalBytes),
+                    pageText, hash, classificationImage);
+        }
+        return new DecodedPage(
+                imagePreprocessor.prepare(image, ImagePreprocessor.SourceKind.PDF_PAGE, originalBytes),
+                pageText, hash, classificationImage);
+    }
+}
@@ -0,0 +1,108 @@
+package com.mohbility.springai.service;
+
+import com.mohbility.springai.model.TaxDocumentResult;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Duplicate detection for the documents of one session. An upload whose bytes match one already
+ * uploaded is rejected by its content digest before any cache lookup or model call. Before
+ * extraction, a form whose first
+ * page looks like one already extracted is only flagged as a possible duplicate: forms printed
+ * from the same template differ in a few digits, well within the perceptual distance. After
+ * extraction, a document is only accepted once per (document type, payer EIN, recipient SSN
+ * last 4, tax year, box amounts). Both lookups are hash based, so cost stays flat as the
+ * session grows.
+ */
+public class DocumentIndex {
+
+    private final String sessionId;
+    private final PerceptualIndex<TaxDocumentResult> forms;
+    private final Set<String> documentIds = new HashSet<>();
+    private final Set<String> semanticKeys = new HashSet<>();
+    private final Set<TaxDocumentResult> accepted = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    DocumentIndex(String sessionId, int perceptualDistance) {
+        this.sessionId = sessionId;
+        this.forms = new PerceptualIndex<>(perceptualDistance);
+    }
+
+    public String sessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Claims an upload by its content digest. False when the same bytes were already uploaded to
+     * this session; this is the only check that catches re-uploads of forms missing an
+     * identifying field, because cache hits come back as new result instances.
+     */
+    public synchronized boolean claimDocument(String documentId) {
+        return documentIds.add(documentId);
+    }
+
+    /**
+     * Gives up a claim whose extraction failed, so the file can be uploaded again.
+     */
+    public synchronized void releaseDocument(String documentId) {
+        documentIds.remove(documentId);
+    }
+
+    /**
+     * A form of this session whose first page is perceptually close. A hint for logging only: the
+     * match says nothing about the box values.
+     */
+    public Optional<TaxDocumentResult> findSimilarForm(long[] firstPageHash) {
+        return firstPageHash != null ? forms.findNear(firstPageHash) : Optional.empty();
+    }
+
+    public void recordForm(long[] firstPageHash, TaxDocumentResult result) {
+        if (firstPageHash != null && result != null) {
+            forms.add(firstPageHash, result);
+        }
+    }
+
+    /**
+     * Accepts a document unless this very result, or one with the same identifying fields and
+     * amounts, was accepted before. Documents missing any identifying field are only checked by
+     * identity here; repeated uploads of them are caught by {@link #claimDocument}.
+     */
+    public synchronized boolean accept(TaxDocumentResult doc) {
+        if (!accepted.add(doc)) {
+            return false;
+        }
+        String key = semanticKey(doc);
+        if (key != null && !semanticKeys.add(key)) {
+            accepted.remove(doc);
+            return false;
+        }
+        return true;
+    }
+
+    static String semanticKey(TaxDocumentResult doc) {
+        String type = doc.getDocument_type();
+        String ein = digits(doc.getPayer_ein());
+        String ssnLast4 = digits(doc.getRecipient_ssn_last4());
+        Integer year = doc.getTax_year();
+        if (type == null || type.isBlank() || ein.isEmpty() || ssnLast4.isEmpty() || year == null || year == 0) {
+            return null;
+        }
+        // Box 1 and the federal withholding (box 2 on a W-2, box 4 on a 1099-NEC) tell apart
+        // forms from one payer to one recipient, e.g. a W-2 and its corrected reissue
+        return type.trim().toUpperCase(Locale.ROOT) + "|" + ein + "|" + ssnLast4 + "|" + year
+                + "|" + cents(doc.getWages_box1()) + "|" + cents(doc.getFederal_income_tax_withheld_box2())
+                + "|" + cents(doc.getNonemployee_compensation_box1()) + "|" + cents(doc.getFederal_income_tax_withheld_box4());
+    }
+
+    private static String cents(Double amount) {
+        return amount == null ? "" : Long.toString(Math.round(amount * 100));
+    }
+
+    private static String digits(String value) {
+        return value == null ? "" : value.replaceAll("\\D", "");
+    }
+}
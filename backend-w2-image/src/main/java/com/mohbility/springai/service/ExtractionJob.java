@@ -0,0 +1,128 @@
+package com.mohbility.springai.service;
+
+import com.mohbility.springai.model.ExtractionOutcome;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Progress and results of an asynchronous extraction. Listeners that subscribe late are
+ * replayed every document finished so far, so polling and SSE clients see the same history.
+ * A job belongs to the session that submitted it: its outcomes carry extracted tax data, so the
+ * job id alone must not give access to them.
+ */
+public class ExtractionJob {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED }
+
+    public interface Listener {
+        default void onDocument(ExtractionJob job, int index, ExtractionOutcome outcome) {
+        }
+
+        default void onComplete(ExtractionJob job) {
+        }
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String sessionId;
+    private final List<String> fileNames;
+    private final ExtractionOutcome[] outcomes;
+    private final List<Listener> listeners = new ArrayList<>();
+    private final Instant createdAt = Instant.now();
+    private Status status = Status.QUEUED;
+    private int finished;
+    private Instant completedAt;
+
+    ExtractionJob(String sessionId, List<String> fileNames) {
+        this.sessionId = sessionId;
+        this.fileNames = List.copyOf(fileNames);
+        this.outcomes = new ExtractionOutcome[fileNames.size()];
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public boolean isOwnedBy(String sessionId) {
+        return this.sessionId.equals(sessionId);
+    }
+
+    public List<String> getFileNames() {
+        return fileNames;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    public synchronized int getFinished() {
+        return finished;
+    }
+
+    public synchronized Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    /**
+     * Outcomes in file order; entries for documents still in progress are null.
+     */
+    public synchronized List<ExtractionOutcome> getOutcomes() {
+        return Arrays.asList(outcomes.clone());
+    }
+
+    public void subscribe(Listener listener) {
+        List<Integer> replay = new ArrayList<>();
+        boolean complete;
+        synchronized (this) {
+            for (int i = 0; i < outcomes.length; i++) {
+                if (outcomes[i] != null) {
+                    replay.add(i);
+                }
+            }
+            complete = status == Status.COMPLETED;
+            if (!complete) {
+                listeners.add(listener);
+            }
+        }
+        replay.forEach(i -> listener.onDocument(this, i, outcomes[i]));
+        if (complete) {
+            listener.onComplete(this);
+        }
+    }
+
+    public synchronized void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    synchronized void markRunning() {
+        status = Status.RUNNING;
+    }
+
+    void recordOutcome(int index, ExtractionOutcome outcome) {
+        List<Listener> targets;
+        synchronized (this) {
+            outcomes[index] = outcome;
+            finished++;
+            targets = List.copyOf(listeners);
+        }
+        targets.forEach(l -> l.onDocument(this, index, outcome));
+    }
+
+    void markCompleted() {
+        List<Listener> targets;
+        synchronized (this) {
+            status = Status.COMPLETED;
+            completedAt = Instant.now();
+            targets = List.copyOf(listeners);
+            listeners.clear();
+        }
+        targets.forEach(l -> l.onComplete(this));
+    }
+}
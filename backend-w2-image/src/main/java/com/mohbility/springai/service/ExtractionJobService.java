@@ -0,0 +1,119 @@
+package com.mohbility.springai.service;
+
+import com.mohbility.springai.exception.JobQueueFullException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs batch extractions in the background. Jobs wait in a bounded queue; when it is full,
+ * submissions are rejected so callers can back off instead of piling up work. Completed jobs are
+ * swept once their retention has passed, whether or not new jobs arrive.
+ */
+@Service
+public class ExtractionJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExtractionJobService.class);
+
+    private final BatchExtractionService batchExtractionService;
+    private final ThreadPoolExecutor executor;
+    private final Duration retention;
+    private final Map<String, ExtractionJob> jobs = new ConcurrentHashMap<>();
+
+    public ExtractionJobService(
+            BatchExtractionService batchExtractionService,
+            @Value("${openai.jobs.workers:2}") int workers,
+            @Value("${openai.jobs.queue-capacity:20}") int queueCapacity,
+            @Value("${openai.jobs.retention:PT1H}") Duration retention
+    ) {
+        this.batchExtractionService = batchExtractionService;
+        this.retention = retention;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("extraction-job-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Spools the uploads to temp files and queues the extraction. The listener is subscribed
+     * before the job can start, so it sees every document. Duplicates are detected against
+     * {@code documentIndex}, and the job belongs to its session.
+     */
+    public ExtractionJob submit(List<MultipartFile> files, DocumentIndex documentIndex, ExtractionJob.Listener listener) throws IOException {
+        List<SpooledUpload> uploads = new ArrayList<>(files.size());
+        try {
+            for (MultipartFile file : files) {
+                uploads.add(SpooledUpload.spool(file));
+            }
+        } catch (IOException e) {
+            uploads.forEach(SpooledUpload::delete);
+            throw e;
+        }
+
+        ExtractionJob job = new ExtractionJob(documentIndex.sessionId(),
+                uploads.stream().map(SpooledUpload::getOriginalFilename).toList());
+        job.subscribe(listener);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, uploads, documentIndex));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            uploads.forEach(SpooledUpload::delete);
+            throw new JobQueueFullException("Extraction queue is full, please retry shortly");
+        }
+        log.info("Queued extraction job {} with {} file(s), queue depth {}", job.getId(), uploads.size(), executor.getQueue().size());
+        return job;
+    }
+
+    /**
+     * The job, or null when it is unknown, expired or belongs to another session.
+     */
+    public ExtractionJob get(String sessionId, String jobId) {
+        ExtractionJob job = jobs.get(jobId);
+        return job != null && job.isOwnedBy(sessionId) ? job : null;
+    }
+
+    private void run(ExtractionJob job, List<SpooledUpload> uploads, DocumentIndex documentIndex) {
+        job.markRunning();
+        try {
+            batchExtractionService.extractAll(new ArrayList<>(uploads), documentIndex, job::recordOutcome);
+        } catch (RuntimeException e) {
+            log.error("Extraction job {} failed", job.getId(), e);
+        } finally {
+            uploads.forEach(SpooledUpload::delete);
+            job.markCompleted();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${openai.jobs.sweep-interval:PT1M}")
+    public void purgeExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        int before = jobs.size();
+        jobs.values().removeIf(job -> job.getCompletedAt() != null && job.getCompletedAt().isBefore(cutoff));
+        int purged = before - jobs.size();
+        if (purged > 0) {
+            log.info("Purged {} expired extraction job(s)", purged);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
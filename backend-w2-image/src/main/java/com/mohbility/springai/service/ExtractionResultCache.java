@@ -0,0 +1,191 @@
+package com.mohbility.springai.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mohbility.springai.model.TaxDocumentResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Content-addressed cache of extraction results. Entries are keyed by a SHA-256 digest of the
+ * uploaded bytes plus the prompt version, so re-uploading the same document skips the model calls.
+ * Each entry holds every form extracted from the upload.
+ * The in-memory tier is LRU and size-bound; the optional disk tier survives restarts. Both honour the TTL.
+ * Entries are held as serialized JSON, so every {@link #get} returns fresh copies: callers edit
+ * their results, and a shared instance would leak those edits into other sessions' uploads.
+ */
+@Service
+public class ExtractionResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ExtractionResultCache.class);
+
+    private final ObjectMapper objectMapper;
+    private final JavaType resultListType;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Path diskDirectory;
+    private final Map<String, CachedResult> memory;
+
+    public ExtractionResultCache(
+            ObjectMapper objectMapper,
+            @Value("${openai.extraction-cache.max-entries:500}") int maxEntries,
+            @Value("${openai.extraction-cache.ttl:P7D}") Duration ttl,
+            @Value("${openai.extraction-cache.disk-dir:}") String diskDir
+    ) throws IOException {
+        this.objectMapper = objectMapper;
+        this.resultListType = objectMapper.getTypeFactory().constructCollectionType(List.class, TaxDocumentResult.class);
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.diskDirectory = diskDir == null || diskDir.isBlank() ? null : Path.of(diskDir);
+        if (diskDirectory != null) {
+            Files.createDirectories(diskDirectory);
+        }
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > ExtractionResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static String sha256(InputStream in) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static String sha256(String text) {
+        return sha256(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String keyFor(String contentDigest, String promptVersion) {
+        return promptVersion + "-" + contentDigest;
+    }
+
+    public Optional<List<TaxDocumentResult>> get(String key) {
+        byte[] json = null;
+        synchronized (memory) {
+            CachedResult cached = memory.get(key);
+            if (cached != null) {
+                if (!isExpired(cached.storedAt())) {
+                    json = cached.json();
+                } else {
+                    memory.remove(key);
+                }
+            }
+        }
+        if (json == null) {
+            json = readFromDisk(key);
+            if (json == null) {
+                return Optional.empty();
+            }
+            synchronized (memory) {
+                memory.put(key, new CachedResult(json, Instant.now()));
+            }
+        }
+        try {
+            return Optional.of(objectMapper.readValue(json, resultListType));
+        } catch (IOException e) {
+            log.warn("Could not read cached extraction {}: {}", key, e.getMessage());
+            synchronized (memory) {
+                memory.remove(key);
+            }
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores a snapshot of {@code results}; later changes to the instances do not reach the cache.
+     */
+    public void put(String key, List<TaxDocumentResult> results) {
+        if (results == null || results.isEmpty()) {
+            return;
+        }
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(results);
+        } catch (IOException e) {
+            log.warn("Could not cache extraction {}: {}", key, e.getMessage());
+            return;
+        }
+        synchronized (memory) {
+            memory.put(key, new CachedResult(json, Instant.now()));
+        }
+        writeToDisk(key, json);
+    }
+
+    private boolean isExpired(Instant storedAt) {
+        return storedAt.plus(ttl).isBefore(Instant.now());
+    }
+
+    private byte[] readFromDisk(String key) {
+        if (diskDirectory == null) {
+            return null;
+        }
+        Path file = diskDirectory.resolve(key + ".json");
+        try {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            if (isExpired(Files.getLastModifiedTime(file).toInstant())) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            log.warn("Could not read cached extraction {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, byte[] json) {
+        if (diskDirectory == null) {
+            return;
+        }
+        Path file = diskDirectory.resolve(key + ".json");
+        try {
+            Path tmp = Files.createTempFile(diskDirectory, key, ".tmp");
+            Files.write(tmp, json);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not persist cached extraction {}: {}", file, e.getMessage());
+        }
+    }
+
+    private record CachedResult(byte[] json, Instant storedAt) {
+    }
+}
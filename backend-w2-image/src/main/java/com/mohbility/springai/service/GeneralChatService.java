@@ -4,23 +4,58 @@ import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
 @Service
 public class GeneralChatService {
 
-    private static final String CONVERSATION_ID = "general-tax-chat";
+    static final String CONVERSATION_NAME = "general-tax-chat";
+    private static final String NO_CONVERSATION_MESSAGE = "ERROR: Please answer some questions before generating a summary.";
+    private static final String SUMMARY_REQUEST = "Write the intake summary for this client now.";
     private final ChatClient chatClient;
     private final ChatMemory chatMemory;
+    private final PromptCacheMetrics promptCacheMetrics;
 
-    public GeneralChatService(ChatClient.Builder builder, ChatMemory regularChatMemory) {
+    public GeneralChatService(OpenAiClientFactory clientFactory, ChatMemory regularChatMemory, PromptCacheMetrics promptCacheMetrics) {
         this.chatMemory = regularChatMemory;
-        this.chatClient = builder
+        this.promptCacheMetrics = promptCacheMetrics;
+        this.chatClient = clientFactory.builder(OpenAiClientFactory.CallType.CHAT)
                 .defaultAdvisors(MessageChatMemoryAdvisor.builder(chatMemory).build())
                 .build();
     }
 
 
-    public String chat(String message) {
+    public String chat(String sessionId, String message) {
+        return promptCacheMetrics.content("general-chat", chatRequest(sessionId, message)
+                .call()
+                .chatResponse());
+    }
+
+    public Flux<String> chatStream(String sessionId, String message) {
+        return promptCacheMetrics.content("general-chat", chatRequest(sessionId, message)
+                .stream()
+                .chatResponse());
+    }
+
+    public String generateSummary(String sessionId) {
+        if (chatMemory.get(conversationId(sessionId)).isEmpty()) {
+            return NO_CONVERSATION_MESSAGE;
+        }
+        return promptCacheMetrics.content("general-summary", summaryRequest(sessionId)
+                .call()
+                .chatResponse());
+    }
+
+    public Flux<String> generateSummaryStream(String sessionId) {
+        if (chatMemory.get(conversationId(sessionId)).isEmpty()) {
+            return Flux.just(NO_CONVERSATION_MESSAGE);
+        }
+        return promptCacheMetrics.content("general-summary", summaryRequest(sessionId)
+                .stream()
+                .chatResponse());
+    }
+
+    private ChatClient.ChatClientRequestSpec chatRequest(String sessionId, String message) {
         String systemPrompt = 
             "You are a professional tax advisor. A client is asking you questions without providing W-2 forms yet.\n\n" +
             "Your role is to:\n" +
@@ -41,17 +76,10 @@ public class GeneralChatService {
         return chatClient.prompt()
                 .system(systemPrompt)
                 .user(message)
-                .advisors(a -> a.param("chat_memory_conversation_id", CONVERSATION_ID))
-                .call()
-                .content();
+                .advisors(a -> a.param("chat_memory_conversation_id", conversationId(sessionId)));
     }
 
-    public String generateSummary() {
-        var messages = chatMemory.get(CONVERSATION_ID);
-        if (messages.isEmpty()) {
-            return "ERROR: Please answer some questions before generating a summary.";
-        }
-
+    private ChatClient.ChatClientRequestSpec summaryRequest(String sessionId) {
         String summaryPrompt = 
             "Based on the conversation history, create a professional intake summary narrative.\n\n" +
             "Generate a professional narrative summary with 3-4 paragraphs covering:\n\n" +
@@ -64,13 +92,16 @@ public class GeneralChatService {
             "Write in third person using past tense (\"reported\", \"stated\", \"provided\"). Extract all relevant information from the conversation and format as flowing narrative paragraphs.";
 
         return chatClient.prompt()
-                .user(summaryPrompt)
-                .advisors(a -> a.param("chat_memory_conversation_id", CONVERSATION_ID))
-                .call()
-                .content();
+                .system(summaryPrompt)
+                .user(SUMMARY_REQUEST)
+                .advisors(a -> a.param("chat_memory_conversation_id", conversationId(sessionId)));
+    }
+
+    public void clearHistory(String sessionId) {
+        chatMemory.clear(conversationId(sessionId));
     }
 
-    public void clearHistory() {
-        chatMemory.clear(CONVERSATION_ID);
+    private static String conversationId(String sessionId) {
+        return TaxDocumentCacheService.conversationId(sessionId, CONVERSATION_NAME);
     }
 }
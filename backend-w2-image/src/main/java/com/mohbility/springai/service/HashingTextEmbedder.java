@@ -0,0 +1,107 @@
+package com.mohbility.springai.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Local sentence embedding for short questions, computed without a model call. Words, word pairs
+ * and character trigrams are hashed into a fixed number of dimensions with a signed hash and the
+ * vector is L2-normalized, so the dot product of two embeddings is their cosine similarity.
+ * The output depends only on the text and the dimension count, which keeps it deterministic
+ * across restarts and in tests.
+ */
+@Service
+public class HashingTextEmbedder {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "the", "is", "are", "was", "were", "be", "been", "am", "do", "does", "did",
+            "what", "whats", "which", "who", "how", "when", "where", "why", "can", "could", "would",
+            "should", "will", "shall", "may", "might", "i", "me", "my", "we", "our", "you", "your",
+            "it", "its", "this", "that", "these", "those", "of", "for", "to", "in", "on", "at", "by",
+            "with", "about", "please", "tell", "know", "much", "there", "any", "and", "or", "if");
+    private static final float TRIGRAM_WEIGHT = 0.5f;
+
+    private final int dimensions;
+
+    public HashingTextEmbedder(@Value("${openai.semantic-cache.dimensions:512}") int dimensions) {
+        this.dimensions = Math.max(16, dimensions);
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public float[] embed(String text) {
+        List<String> words = words(text);
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            add(vector, "w:" + word, 1f);
+            if (i + 1 < words.size()) {
+                add(vector, "b:" + word + " " + words.get(i + 1), 1f);
+            }
+            String padded = "<" + word + ">";
+            for (int j = 0; j + 3 <= padded.length(); j++) {
+                add(vector, "c:" + padded.substring(j, j + 3), TRIGRAM_WEIGHT);
+            }
+        }
+
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    public static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    /**
+     * Content words of the question: normalized as for the relevance gate, stop words removed and
+     * plural endings trimmed.
+     */
+    static List<String> words(String text) {
+        String normalized = TaxRelevanceGate.normalize(text);
+        List<String> words = new ArrayList<>();
+        if (normalized.isEmpty()) {
+            return words;
+        }
+        for (String word : normalized.split(" ")) {
+            if (STOP_WORDS.contains(word)) {
+                continue;
+            }
+            if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")) {
+                word = word.substring(0, word.length() - 1);
+            }
+            words.add(word);
+        }
+        return words;
+    }
+
+    private void add(float[] vector, String feature, float weight) {
+        // FNV-1a; the low bits pick the dimension and the top bit the sign
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : feature.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        int index = (int) Long.remainderUnsigned(hash >>> 1, dimensions);
+        vector[index] += hash < 0 ? -weight : weight;
+    }
+}
@@ -0,0 +1,152 @@
+package com.mohbility.springai.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Prepares page images for the vision model. Each source kind has its own render resolution and
+ * pixel budget; images over budget are downscaled and everything is re-encoded as JPEG.
+ * Standard W-2/1099 layouts stay legible well below 300 DPI, so this mostly trims payload and tokens.
+ */
+@Service
+public class ImagePreprocessor {
+
+    public enum SourceKind {
+        /** Pages rendered from a PDF: clean vector/text content. */
+        PDF_PAGE,
+        /** Photos and scans uploaded directly as images. */
+        UPLOADED_IMAGE
+    }
+
+    /**
+     * {@code originalBytes} is the uploaded file size for images and the PDF's size divided by its
+     * page count for PDF pages, so {@link #bytesSaved()} compares against what the user sent.
+     */
+    public record PreparedImage(byte[] bytes, MimeType mimeType, long originalBytes) {
+        public long bytesSaved() {
+            return Math.max(0, originalBytes - bytes.length);
+        }
+    }
+
+    private final float pdfDpi;
+    private final long pdfMaxPixels;
+    private final long imageMaxPixels;
+    private final float jpegQuality;
+    private final int previewMaxDimension;
+    private final int classificationMaxDimension;
+
+    public ImagePreprocessor(
+            @Value("${openai.image.pdf-dpi:150}") float pdfDpi,
+            @Value("${openai.image.pdf-max-pixels:4000000}") long pdfMaxPixels,
+            @Value("${openai.image.upload-max-pixels:6000000}") long imageMaxPixels,
+            @Value("${openai.image.jpeg-quality:0.85}") float jpegQuality,
+            @Value("${openai.preview.max-dimension:1000}") int previewMaxDimension,
+            @Value("${openai.image.classification-max-dimension:512}") int classificationMaxDimension
+    ) {
+        this.pdfDpi = pdfDpi;
+        this.pdfMaxPixels = pdfMaxPixels;
+        this.imageMaxPixels = imageMaxPixels;
+        this.jpegQuality = jpegQuality;
+        this.previewMaxDimension = previewMaxDimension;
+        this.classificationMaxDimension = classificationMaxDimension;
+    }
+
+    public float pdfDpi() {
+        return pdfDpi;
+    }
+
+    /**
+     * Identifies the settings that affect what the model sees, so cached extractions are
+     * invalidated when they change.
+     */
+    public String settingsFingerprint() {
+        return pdfDpi + "/" + pdfMaxPixels + "/" + imageMaxPixels + "/" + jpegQuality + "/" + classificationMaxDimension;
+    }
+
+    public PreparedImage prepare(BufferedImage image, SourceKind kind, long originalBytes) throws IOException {
+        long maxPixels = kind == SourceKind.PDF_PAGE ? pdfMaxPixels : imageMaxPixels;
+        long pixels = (long) image.getWidth() * image.getHeight();
+        double scale = pixels > maxPixels ? Math.sqrt((double) maxPixels / pixels) : 1.0;
+        return new PreparedImage(encodeJpeg(scale(image, scale)), MimeTypeUtils.IMAGE_JPEG, originalBytes);
+    }
+
+    /**
+     * Downscales and recompresses an uploaded image, keeping the original bytes when
+     * recompression would not make it smaller.
+     */
+    public PreparedImage prepareUpload(BufferedImage image, byte[] imageBytes, MimeType originalType) throws IOException {
+        PreparedImage prepared = prepare(image, SourceKind.UPLOADED_IMAGE, imageBytes.length);
+        if (prepared.bytes().length >= imageBytes.length) {
+            return new PreparedImage(imageBytes, originalType, imageBytes.length);
+        }
+        return prepared;
+    }
+
+    public byte[] thumbnail(BufferedImage image) throws IOException {
+        return encodeJpeg(scale(image, fitScale(image, previewMaxDimension)));
+    }
+
+    /**
+     * Small rendition of a page, just legible enough to tell which form it belongs to.
+     */
+    public PreparedImage classificationImage(BufferedImage image) throws IOException {
+        return new PreparedImage(encodeJpeg(scale(image, fitScale(image, classificationMaxDimension))), MimeTypeUtils.IMAGE_JPEG, 0);
+    }
+
+    private static double fitScale(BufferedImage image, int maxDimension) {
+        int longEdge = Math.max(image.getWidth(), image.getHeight());
+        return longEdge > maxDimension ? (double) maxDimension / longEdge : 1.0;
+    }
+
+    private BufferedImage scale(BufferedImage image, double scale) {
+        boolean opaqueRgb = image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_3BYTE_BGR;
+        if (scale >= 1.0 && opaqueRgb) {
+            return image;
+        }
+
+        int width = Math.max(1, (int) Math.round(image.getWidth() * Math.min(scale, 1.0)));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * Math.min(scale, 1.0)));
+
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
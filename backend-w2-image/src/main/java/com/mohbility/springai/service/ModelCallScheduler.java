@@ -0,0 +1,394 @@
+package com.mohbility.springai.service;
+
+import com.mohbility.springai.exception.ModelUnavailableException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for every outbound model call, shared by all services because they draw on
+ * one OpenAI account. Two token buckets refill continuously: one for requests per minute, one for
+ * estimated tokens per minute. Waiting calls are served strictly by priority class, and within a
+ * class round-robin across sessions, so one large batch upload cannot starve other users. Batch
+ * calls also leave {@code interactive-reserve} of both buckets untouched for interactive calls.
+ * The token estimate is corrected with the reported usage once a call completes.
+ */
+@Service
+public class ModelCallScheduler {
+
+    public enum Priority {
+        /** A user is waiting on the answer: chat, summaries, search, validation. */
+        INTERACTIVE,
+        /** Document extraction and background work. */
+        BATCH
+    }
+
+    /** Advisor parameter naming the session a call is made for. */
+    public static final String SESSION_KEY = "model_scheduler_session";
+    /** Advisor parameter overriding the priority of a single call. */
+    public static final String PRIORITY = "model_scheduler_priority";
+
+    private static final Logger log = LoggerFactory.getLogger(ModelCallScheduler.class);
+    private static final String CONVERSATION_ID = "chat_memory_conversation_id";
+
+    private static final class Ticket {
+        private final Priority priority;
+        private final String session;
+        private final int tokens;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Void> granted = new CompletableFuture<>();
+
+        private Ticket(Priority priority, String session, int tokens) {
+            this.priority = priority;
+            this.session = session;
+            this.tokens = tokens;
+        }
+    }
+
+    /**
+     * One queue per session, served round-robin.
+     */
+    private static final class FairQueue {
+        private final Map<String, ArrayDeque<Ticket>> sessions = new LinkedHashMap<>();
+
+        void add(Ticket ticket) {
+            sessions.computeIfAbsent(ticket.session, k -> new ArrayDeque<>()).add(ticket);
+        }
+
+        Ticket peek() {
+            return sessions.isEmpty() ? null : sessions.values().iterator().next().peek();
+        }
+
+        /** Removes the head ticket and moves its session to the back of the rotation. */
+        void poll() {
+            Map.Entry<String, ArrayDeque<Ticket>> first = sessions.entrySet().iterator().next();
+            ArrayDeque<Ticket> tickets = sessions.remove(first.getKey());
+            tickets.poll();
+            if (!tickets.isEmpty()) {
+                sessions.put(first.getKey(), tickets);
+            }
+        }
+
+        boolean remove(Ticket ticket) {
+            ArrayDeque<Ticket> tickets = sessions.get(ticket.session);
+            if (tickets == null || !tickets.remove(ticket)) {
+                return false;
+            }
+            if (tickets.isEmpty()) {
+                sessions.remove(ticket.session);
+            }
+            return true;
+        }
+
+        int size() {
+            return sessions.values().stream().mapToInt(ArrayDeque::size).sum();
+        }
+    }
+
+    private final boolean enabled;
+    private final double requestCapacity;
+    private final double tokenCapacity;
+    private final double reserveFraction;
+    private final Duration maxWait;
+    private final int tokensPerImage;
+    private final int expectedOutputTokens;
+    private final Map<Priority, FairQueue> queues = new EnumMap<>(Priority.class);
+    private final Map<Priority, Long> grants = new EnumMap<>(Priority.class);
+    private final Map<Priority, Long> waitNanos = new EnumMap<>(Priority.class);
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private double availableRequests;
+    private double availableTokens;
+    private long refilledAt = System.nanoTime();
+    private ScheduledFuture<?> wakeUp;
+    private long wakeUpAt;
+    private long timeouts;
+
+    public ModelCallScheduler(
+            @Value("${openai.scheduler.enabled:true}") boolean enabled,
+            @Value("${openai.scheduler.requests-per-minute:500}") int requestsPerMinute,
+            @Value("${openai.scheduler.tokens-per-minute:200000}") int tokensPerMinute,
+            @Value("${openai.scheduler.interactive-reserve:0.2}") double reserveFraction,
+            @Value("${openai.scheduler.max-wait:PT2M}") Duration maxWait,
+            @Value("${openai.scheduler.tokens-per-image:1100}") int tokensPerImage,
+            @Value("${openai.scheduler.expected-output-tokens:800}") int expectedOutputTokens
+    ) {
+        this.enabled = enabled;
+        this.requestCapacity = Math.max(1, requestsPerMinute);
+        this.tokenCapacity = Math.max(1, tokensPerMinute);
+        this.reserveFraction = Math.min(0.9, Math.max(0, reserveFraction));
+        this.maxWait = maxWait;
+        this.tokensPerImage = tokensPerImage;
+        this.expectedOutputTokens = expectedOutputTokens;
+        this.availableRequests = requestCapacity;
+        this.availableTokens = tokenCapacity;
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new FairQueue());
+            grants.put(priority, 0L);
+            waitNanos.put(priority, 0L);
+        }
+    }
+
+    /**
+     * An advisor that admits each call of a client through this scheduler, with
+     * {@code defaultPriority} unless the call overrides it with the {@link #PRIORITY} parameter.
+     */
+    public SchedulingAdvisor advisor(Priority defaultPriority) {
+        return new SchedulingAdvisor(defaultPriority);
+    }
+
+    /**
+     * Blocks until the call may go out, or fails with {@link ModelUnavailableException} after
+     * {@code max-wait}. The returned permit must be released with the tokens actually used.
+     */
+    public Permit acquire(Priority priority, String session, int estimatedTokens) {
+        if (!enabled) {
+            return new Permit(0);
+        }
+        int tokens = (int) Math.min(estimatedTokens, tokenCapacity * (1 - reserveFraction));
+        Ticket ticket = new Ticket(priority, session, tokens);
+        synchronized (this) {
+            queues.get(priority).add(ticket);
+            dispatch();
+        }
+        try {
+            ticket.granted.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+            return new Permit(tokens);
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                if (!queues.get(priority).remove(ticket)) {
+                    // Granted in the meantime: hand the capacity back
+                    availableRequests += 1;
+                    availableTokens += tokens;
+                    dispatch();
+                }
+                if (e instanceof TimeoutException) {
+                    timeouts++;
+                }
+            }
+            log.warn("{} model call for {} gave up after waiting {} for rate-limit capacity", priority, session, maxWait);
+            throw new ModelUnavailableException("The AI service is busy right now. Please try again shortly.");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        refill();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("availableRequests", (long) availableRequests);
+        stats.put("availableTokens", (long) availableTokens);
+        stats.put("timeouts", timeouts);
+        for (Priority priority : Priority.values()) {
+            long granted = grants.get(priority);
+            Map<String, Object> perClass = new LinkedHashMap<>();
+            perClass.put("queued", queues.get(priority).size());
+            perClass.put("granted", granted);
+            perClass.put("averageWaitMs", granted == 0 ? 0.0 : waitNanos.get(priority) / 1e6 / granted);
+            stats.put(priority.name().toLowerCase(), perClass);
+        }
+        return stats;
+    }
+
+    /**
+     * Grants waiting tickets in order while capacity lasts, then arranges to run again once the
+     * head ticket's capacity has refilled.
+     */
+    private void dispatch() {
+        refill();
+        while (true) {
+            Ticket next = queues.get(Priority.INTERACTIVE).peek();
+            if (next == null) {
+                next = queues.get(Priority.BATCH).peek();
+            }
+            if (next == null) {
+                return;
+            }
+            double reserve = next.priority == Priority.BATCH ? reserveFraction : 0;
+            double requestsNeeded = 1 + reserve * requestCapacity;
+            double tokensNeeded = next.tokens + reserve * tokenCapacity;
+            if (availableRequests < requestsNeeded || availableTokens < tokensNeeded) {
+                double seconds = Math.max(
+                        (requestsNeeded - availableRequests) / (requestCapacity / 60),
+                        (tokensNeeded - availableTokens) / (tokenCapacity / 60));
+                scheduleWakeUp((long) Math.ceil(seconds * 1_000_000_000L));
+                return;
+            }
+            queues.get(next.priority).poll();
+            availableRequests -= 1;
+            availableTokens -= next.tokens;
+            grants.merge(next.priority, 1L, Long::sum);
+            waitNanos.merge(next.priority, System.nanoTime() - next.enqueuedAt, Long::sum);
+            next.granted.complete(null);
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double minutes = (now - refilledAt) / 60e9;
+        refilledAt = now;
+        availableRequests = Math.min(requestCapacity, availableRequests + minutes * requestCapacity);
+        availableTokens = Math.min(tokenCapacity, availableTokens + minutes * tokenCapacity);
+    }
+
+    private void scheduleWakeUp(long delayNanos) {
+        long at = System.nanoTime() + Math.max(1_000_000L, delayNanos);
+        if (wakeUp != null && !wakeUp.isDone() && wakeUpAt <= at) {
+            return;
+        }
+        if (wakeUp != null) {
+            wakeUp.cancel(false);
+        }
+        wakeUpAt = at;
+        wakeUp = timer.schedule(() -> {
+            synchronized (this) {
+                wakeUp = null;
+                dispatch();
+            }
+        }, Math.max(1_000_000L, delayNanos), TimeUnit.NANOSECONDS);
+    }
+
+    private synchronized void settle(int estimatedTokens, int actualTokens) {
+        refill();
+        availableTokens = Math.min(tokenCapacity, availableTokens + estimatedTokens - actualTokens);
+        dispatch();
+    }
+
+    /**
+     * Admission granted for one call. Releasing it with the reported usage returns an
+     * over-estimate to the bucket, or charges the difference for an under-estimate.
+     */
+    public final class Permit {
+        private final int estimatedTokens;
+
+        private Permit(int estimatedTokens) {
+            this.estimatedTokens = estimatedTokens;
+        }
+
+        public void release(Integer actualTokens) {
+            if (enabled && actualTokens != null && actualTokens > 0) {
+                settle(estimatedTokens, actualTokens);
+            }
+        }
+    }
+
+    private int estimateTokens(ChatClientRequest request) {
+        int characters = 0;
+        int images = 0;
+        for (Message message : request.prompt().getInstructions()) {
+            characters += message.getText() != null ? message.getText().length() : 0;
+            if (message instanceof UserMessage userMessage) {
+                images += userMessage.getMedia().size();
+            }
+        }
+        return characters / 4 + images * tokensPerImage + expectedOutputTokens;
+    }
+
+    private static Integer totalTokens(ChatClientResponse response) {
+        if (response == null || response.chatResponse() == null || response.chatResponse().getMetadata() == null) {
+            return null;
+        }
+        Usage usage = response.chatResponse().getMetadata().getUsage();
+        return usage != null ? usage.getTotalTokens() : null;
+    }
+
+    /**
+     * Sits last in the advisor chain, so the estimate covers everything earlier advisors (chat
+     * memory in particular) added to the prompt.
+     */
+    public final class SchedulingAdvisor implements CallAdvisor, StreamAdvisor {
+
+        private final Priority defaultPriority;
+
+        private SchedulingAdvisor(Priority defaultPriority) {
+            this.defaultPriority = defaultPriority;
+        }
+
+        @Override
+        public String getName() {
+            return "ModelCallScheduler";
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE - 100;
+        }
+
+        @Override
+        public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+            Permit permit = acquire(priority(request), session(request), estimateTokens(request));
+            Integer used = null;
+            try {
+                ChatClientResponse response = chain.nextCall(request);
+                used = totalTokens(response);
+                return response;
+            } finally {
+                permit.release(used);
+            }
+        }
+
+        @Override
+        public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+            AtomicInteger used = new AtomicInteger();
+            return Mono.fromCallable(() -> acquire(priority(request), session(request), estimateTokens(request)))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMapMany(permit -> chain.nextStream(request)
+                            .doOnNext(response -> {
+                                Integer tokens = totalTokens(response);
+                                if (tokens != null && tokens > 0) {
+                                    used.set(tokens);
+                                }
+                            })
+                            .doFinally(signal -> permit.release(used.get())));
+        }
+
+        private Priority priority(ChatClientRequest request) {
+            Object priority = request.context().get(PRIORITY);
+            return priority instanceof Priority p ? p : defaultPriority;
+        }
+
+        private String session(ChatClientRequest request) {
+            Object session = request.context().get(SESSION_KEY);
+            if (session == null) {
+                session = request.context().get(CONVERSATION_ID);
+            }
+            return session != null ? session.toString() : defaultPriority.name().toLowerCase() + "-shared";
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,241 @@
+package com.mohbility.springai.service;
+
+import com.mohbility.springai.exception.ModelUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Builds every outbound OpenAI client in the application on one shared JDK HTTP client (HTTP/2,
+ * pooled connections, connect timeout). Each call type gets its own read timeout and circuit
+ * breaker; all share a retry policy that retries 429, 5xx and I/O errors with jittered
+ * exponential backoff. Every client admits its calls through the {@link ModelCallScheduler}
+ * (extraction as batch work, everything else as interactive). The base URL is configurable,
+ * so the whole layer can be pointed at a local mock server.
+ */
+@Service
+public class OpenAiClientFactory {
+
+    public enum CallType {
+        /** Vision and text-layer extraction, page classification. */
+        EXTRACTION,
+        /** Conversations, summaries and chat-memory compaction. */
+        CHAT,
+        /** Web-search answers. */
+        SEARCH,
+        /** The short tax-relevance check. */
+        VALIDATION
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(OpenAiClientFactory.class);
+
+    /**
+     * Rate limits and server errors are transient and retried; any other error status is not.
+     */
+    private static final ResponseErrorHandler RESPONSE_ERROR_HANDLER = new ResponseErrorHandler() {
+        @Override
+        public boolean hasError(ClientHttpResponse response) throws IOException {
+            return response.getStatusCode().isError();
+        }
+
+        @Override
+        public void handleError(ClientHttpResponse response) throws IOException {
+            int status = response.getStatusCode().value();
+            String message = status + " - " + StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8);
+            if (isRetryable(status)) {
+                throw new TransientAiException(message);
+            }
+            throw new NonTransientAiException(message);
+        }
+    };
+
+    private final String baseUrl;
+    private final String apiKey;
+    private final HttpClient httpClient;
+    private final Map<CallType, Duration> readTimeouts = new EnumMap<>(CallType.class);
+    private final Map<CallType, CircuitBreaker> breakers = new EnumMap<>(CallType.class);
+    private final Map<CallType, OpenAiApi> apis = new EnumMap<>(CallType.class);
+    private final RetryTemplate retryTemplate;
+    private final OpenAiChatOptions defaultOptions;
+    private final ModelCallScheduler scheduler;
+
+    public OpenAiClientFactory(
+            @Value("${spring.ai.openai.base-url:https://api.openai.com}") String baseUrl,
+            @Value("${spring.ai.openai.api-key}") String apiKey,
+            OpenAiChatModel defaultChatModel,
+            ModelCallScheduler scheduler,
+            @Value("${openai.client.connect-timeout:PT5S}") Duration connectTimeout,
+            @Value("${openai.client.read-timeout.extraction:PT120S}") Duration extractionTimeout,
+            @Value("${openai.client.read-timeout.chat:PT60S}") Duration chatTimeout,
+            @Value("${openai.client.read-timeout.search:PT90S}") Duration searchTimeout,
+            @Value("${openai.client.read-timeout.validation:PT10S}") Duration validationTimeout,
+            @Value("${openai.client.retry.max-attempts:4}") int maxAttempts,
+            @Value("${openai.client.retry.initial-backoff:PT0.5S}") Duration initialBackoff,
+            @Value("${openai.client.retry.multiplier:2.0}") double backoffMultiplier,
+            @Value("${openai.client.retry.max-backoff:PT10S}") Duration maxBackoff,
+            @Value("${openai.client.circuit-breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${openai.client.circuit-breaker.open-duration:PT30S}") Duration openDuration
+    ) {
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey;
+        this.scheduler = scheduler;
+        // Options from spring.ai.openai.chat.options.* (model, temperature, stream usage)
+        this.defaultOptions = OpenAiChatOptions.fromOptions((OpenAiChatOptions) defaultChatModel.getDefaultOptions());
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.readTimeouts.put(CallType.EXTRACTION, extractionTimeout);
+        this.readTimeouts.put(CallType.CHAT, chatTimeout);
+        this.readTimeouts.put(CallType.SEARCH, searchTimeout);
+        this.readTimeouts.put(CallType.VALIDATION, validationTimeout);
+        for (CallType type : CallType.values()) {
+            breakers.put(type, new CircuitBreaker(type.name().toLowerCase(), failureThreshold, openDuration));
+        }
+        this.retryTemplate = RetryTemplate.builder()
+                .maxAttempts(Math.max(1, maxAttempts))
+                .retryOn(TransientAiException.class)
+                .retryOn(ResourceAccessException.class)
+                .exponentialBackoff(initialBackoff.toMillis(), backoffMultiplier, maxBackoff.toMillis(), true)
+                .withListener(new RetryListener() {
+                    @Override
+                    public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+                        log.warn("OpenAI call failed (attempt {}): {}", context.getRetryCount(), throwable.getMessage());
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * A client builder for {@code type} with the model options from application properties.
+     */
+    public ChatClient.Builder builder(CallType type) {
+        return builder(type, OpenAiChatOptions.fromOptions(defaultOptions));
+    }
+
+    /**
+     * A client builder for {@code type} with explicit model options, for calls that use a
+     * different model than the default.
+     */
+    public ChatClient.Builder builder(CallType type, OpenAiChatOptions options) {
+        OpenAiChatModel chatModel = OpenAiChatModel.builder()
+                .openAiApi(api(type))
+                .defaultOptions(options)
+                .retryTemplate(retryTemplate)
+                .build();
+        ModelCallScheduler.Priority priority = type == CallType.EXTRACTION
+                ? ModelCallScheduler.Priority.BATCH
+                : ModelCallScheduler.Priority.INTERACTIVE;
+        return ChatClient.builder(chatModel).defaultAdvisors(scheduler.advisor(priority));
+    }
+
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> view = new LinkedHashMap<>();
+        breakers.forEach((type, breaker) -> view.put(breaker.name(), breaker.snapshot()));
+        return view;
+    }
+
+    private synchronized OpenAiApi api(CallType type) {
+        return apis.computeIfAbsent(type, t -> {
+            Duration readTimeout = readTimeouts.get(t);
+            CircuitBreaker breaker = breakers.get(t);
+
+            JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+            requestFactory.setReadTimeout(readTimeout);
+            JdkClientHttpConnector connector = new JdkClientHttpConnector(httpClient);
+            connector.setReadTimeout(readTimeout);
+
+            return OpenAiApi.builder()
+                    .baseUrl(baseUrl)
+                    .apiKey(apiKey)
+                    .restClientBuilder(RestClient.builder()
+                            .requestFactory(requestFactory)
+                            .requestInterceptor(breakerInterceptor(breaker)))
+                    .webClientBuilder(WebClient.builder()
+                            .clientConnector(connector)
+                            .filter(breakerFilter(breaker)))
+                    .responseErrorHandler(RESPONSE_ERROR_HANDLER)
+                    .build();
+        });
+    }
+
+    private static ClientHttpRequestInterceptor breakerInterceptor(CircuitBreaker breaker) {
+        return (request, body, execution) -> {
+            acquire(breaker);
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                record(breaker, response.getStatusCode().value());
+                return response;
+            } catch (IOException e) {
+                // A cancelled call (interrupted thread) says nothing about the upstream's health
+                if (!Thread.currentThread().isInterrupted()) {
+                    breaker.onFailure();
+                }
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * Streaming calls go through WebClient; the breaker sees their status the same way.
+     */
+    private static ExchangeFilterFunction breakerFilter(CircuitBreaker breaker) {
+        return (request, next) -> Mono.defer(() -> {
+            acquire(breaker);
+            return next.exchange(request)
+                    .doOnNext(response -> record(breaker, response.statusCode().value()))
+                    .doOnError(e -> breaker.onFailure());
+        });
+    }
+
+    private static void acquire(CircuitBreaker breaker) {
+        if (!breaker.tryAcquire()) {
+            throw new ModelUnavailableException("The AI service is temporarily unavailable (" + breaker.name()
+                    + " calls are failing). Please try again shortly.");
+        }
+    }
+
+    private static void record(CircuitBreaker breaker, int status) {
+        if (isRetryable(status)) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 429 || status >= 500;
+    }
+}
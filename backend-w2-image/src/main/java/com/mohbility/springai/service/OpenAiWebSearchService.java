@@ -1,157 +1,363 @@
 package com.mohbility.springai.service;
 
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.ai.openai.api.OpenAiApi;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+/**
+ * IRS questions answered by the web-search model. The fixed lookups (deadlines, brackets,
+ * deduction, updates) ask the same question for every user, so their answers are cached per
+ * lookup: fresh answers are served directly, answers past their TTL but within the stale window
+ * are served while one background call refreshes them, and concurrent misses share one call.
+ */
 @Service
 public class OpenAiWebSearchService {
 
+    private enum Lookup {
+        FILING_DEADLINES("What are the tax year 2025 IRS tax filing deadlines (filing in 2026)?"),
+        LATEST_UPDATES("What are the latest IRS updates and announcements for tax year 2025?"),
+        TAX_BRACKETS("What are the tax year 2025 federal income tax brackets?"),
+        STANDARD_DEDUCTION("What is the standard deduction amount for tax year 2025?");
+
+        private final String question;
+
+        Lookup(String question) {
+            this.question = question;
+        }
+    }
+
+    private record CachedAnswer(String answer, Instant fetchedAt) {
+    }
+
     private static final Logger log = LoggerFactory.getLogger(OpenAiWebSearchService.class);
     private static final String MODEL = "gpt-4o-search-preview";
     private static final String VALIDATION_MODEL = "gpt-4o-mini";
     private static final String TAX_REJECTION_MESSAGE = "I can only answer questions related to U.S. federal taxes and IRS matters. Please ask a tax-related question.";
+    private static final String SEARCH_ERROR_MESSAGE = "Error retrieving IRS information. Please try again later.";
+    private static final String TAX_YEAR_INSTRUCTIONS = """
+            CRITICAL: Every question is about TAX YEAR 2025 (filing in 2026).
+            This is for income earned in 2025, to be filed in 2026.
+            Do NOT provide information for tax year 2024 or any other year.
+
+            USER CONTEXT:
+            Tax Year: 2025 (filing in 2026)
+            Income Year: 2025
+            Filing Year: 2026
+
+            ---
+            INSTRUCTION TO ASSISTANT:
+            1. Search ONLY for tax year 2025 information from IRS.gov.
+            2. If the user provides specific income amounts and asks for calculations (EITC, tax owed, etc.):
+               - Use the official 2025 IRS tables, formulas, and thresholds from IRS.gov
+               - Perform the calculation step-by-step showing the formula used
+               - Cite the specific IRS publication or table used (e.g., "IRS Publication 596, EITC Table for 2025")
+               - Clearly state any assumptions made
+            3. If 2025 information is not yet available, explicitly state: "Tax year 2025 information is not yet published by the IRS. The most recent available is [year]."
+            4. NEVER provide 2024 or prior year information without clearly stating the year.
+            5. Provide a factual, compliant, and concise answer with IRS.gov sources.
+            6. End with: "This is an educational estimate based on IRS guidelines. For your actual tax situation, please consult a tax professional or use official IRS tools."
+            """;
+    private static final String VALIDATION_INSTRUCTIONS = """
+            Determine if the user's question relates to U.S. federal income taxes or IRS topics such as:
+            - tax brackets, deductions, credits
+            - filing status, dependents
+            - tax forms (1040, W-2, 1099, etc.)
+            - IRS publications or policies
+            - AGI, taxable income calculations
+
+            Respond only with "YES" or "NO".
+            """;
+
     
     private final ChatClient chatClient;
     private final ChatClient validationClient;
     private final String systemPrompt;
+    private final PromptCacheMetrics promptCacheMetrics;
+    private final Map<Lookup, Duration> lookupTtls = new EnumMap<>(Lookup.class);
+    private final Duration staleWindow;
+    private final Map<Lookup, CachedAnswer> lookupAnswers = new ConcurrentHashMap<>();
+    private final Map<Lookup, CompletableFuture<String>> lookupRefreshes = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final boolean speculativeSearch;
+    private final int maxWastedSearchesPerMinute;
+    private long wasteMinute;
+    private int wastedSearches;
+    private final TaxRelevanceGate relevanceGate;
+    private final SemanticAnswerCache semanticAnswerCache;
+    private final Map<String, Boolean> validationVerdicts;
+    private final Map<String, CompletableFuture<Boolean>> validationsInFlight = new ConcurrentHashMap<>();
 
     public OpenAiWebSearchService(
-            @Value("${spring.ai.openai.api-key}") String apiKey,
-            @Value("classpath:prompts/tax-assist-pro-system-prompt.txt") org.springframework.core.io.Resource promptResource
+            OpenAiClientFactory clientFactory,
+            @Value("classpath:prompts/tax-assist-pro-system-prompt.txt") org.springframework.core.io.Resource promptResource,
+            PromptCacheMetrics promptCacheMetrics,
+            TaxRelevanceGate relevanceGate,
+            SemanticAnswerCache semanticAnswerCache,
+            @Value("${openai.relevance.cache-max-entries:10000}") int verdictCacheEntries,
+            @Value("${openai.relevance.speculative-search:true}") boolean speculativeSearch,
+            @Value("${openai.relevance.max-wasted-searches-per-minute:10}") int maxWastedSearchesPerMinute,
+            @Value("${openai.irs-lookup.ttl.filing-deadlines:P1D}") Duration filingDeadlinesTtl,
+            @Value("${openai.irs-lookup.ttl.latest-updates:PT1H}") Duration latestUpdatesTtl,
+            @Value("${openai.irs-lookup.ttl.tax-brackets:P7D}") Duration taxBracketsTtl,
+            @Value("${openai.irs-lookup.ttl.standard-deduction:P7D}") Duration standardDeductionTtl,
+            @Value("${openai.irs-lookup.stale-window:P1D}") Duration staleWindow
     ) throws java.io.IOException {
-        this.systemPrompt = promptResource.getContentAsString(StandardCharsets.UTF_8);
-        OpenAiApi openAiApi = OpenAiApi.builder().apiKey(apiKey).build();
-        
-        OpenAiChatModel searchModel = OpenAiChatModel.builder()
-                .openAiApi(openAiApi)
-                .defaultOptions(OpenAiChatOptions.builder().model(MODEL).build())
-                .build();
-        this.chatClient = ChatClient.builder(searchModel).build();
-        
-        OpenAiChatModel validationModel = OpenAiChatModel.builder()
-                .openAiApi(openAiApi)
-                .defaultOptions(OpenAiChatOptions.builder().model(VALIDATION_MODEL).build())
-                .build();
-        this.validationClient = ChatClient.builder(validationModel).build();
+        // Everything that does not depend on the question sits in one stable leading system message
+        this.systemPrompt = promptResource.getContentAsString(StandardCharsets.UTF_8) + "\n\n" + TAX_YEAR_INSTRUCTIONS;
+        this.promptCacheMetrics = promptCacheMetrics;
+        this.lookupTtls.put(Lookup.FILING_DEADLINES, filingDeadlinesTtl);
+        this.lookupTtls.put(Lookup.LATEST_UPDATES, latestUpdatesTtl);
+        this.lookupTtls.put(Lookup.TAX_BRACKETS, taxBracketsTtl);
+        this.lookupTtls.put(Lookup.STANDARD_DEDUCTION, standardDeductionTtl);
+        this.staleWindow = staleWindow;
+        this.relevanceGate = relevanceGate;
+        this.semanticAnswerCache = semanticAnswerCache;
+        this.speculativeSearch = speculativeSearch;
+        this.maxWastedSearchesPerMinute = maxWastedSearchesPerMinute;
+        this.validationVerdicts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > verdictCacheEntries;
+            }
+        };
+        this.chatClient = clientFactory.builder(OpenAiClientFactory.CallType.SEARCH,
+                OpenAiChatOptions.builder().model(MODEL).build()).build();
+        this.validationClient = clientFactory.builder(OpenAiClientFactory.CallType.VALIDATION,
+                OpenAiChatOptions.builder().model(VALIDATION_MODEL).build()).build();
     }
 
     public String queryIRS2025(String question) {
-        return queryIRS2025(question, true);
-    }
-
-    private String queryIRS2025(String question, boolean validateTaxRelated) {
         try {
             log.info("Querying IRS 2025: {}", question);
 
-            if (validateTaxRelated && !isTaxRelated(question)) {
+            Optional<String> cached = semanticAnswerCache.find(question);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+
+            Boolean known = knownRelevance(question);
+            String answer;
+            if (known == null && speculativeSearch && speculationAllowed()) {
+                answer = speculativeQuery(question);
+            } else {
+                answer = (known != null ? known : isTaxRelated(question)) ? search(question) : null;
+            }
+            if (answer == null) {
                 log.warn("Rejected non-tax question: {}", question);
                 return TAX_REJECTION_MESSAGE;
             }
+            semanticAnswerCache.put(question, answer);
+            return answer;
+        } catch (Exception e) {
+            log.error("Error during IRS query", e);
+            return SEARCH_ERROR_MESSAGE;
+        }
+    }
 
-            String userPrompt = buildUserPrompt(question);
+    /**
+     * Starts the web search while the validator is still deciding, since nearly every question
+     * turns out to be tax related. If the validator rejects the question the search is cancelled,
+     * its result is discarded, the wasted call counts against the per-minute cap and null is returned.
+     */
+    private String speculativeQuery(String question) throws Exception {
+        Future<String> search = executor.submit(() -> search(question));
+        if (!isTaxRelated(question)) {
+            search.cancel(true);
+            recordWastedSearch();
+            log.info("Cancelled speculative search for rejected question: {}", question);
+            return null;
+        }
+        try {
+            return search.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
 
-            OpenAiApi.ChatCompletionRequest.WebSearchOptions webSearchOptions = 
-                new OpenAiApi.ChatCompletionRequest.WebSearchOptions(
-                    OpenAiApi.ChatCompletionRequest.WebSearchOptions.SearchContextSize.MEDIUM,
-                    null
-                );
+    private synchronized boolean speculationAllowed() {
+        rollWasteMinute();
+        return wastedSearches < maxWastedSearchesPerMinute;
+    }
 
-            OpenAiChatOptions options = OpenAiChatOptions.builder()
-                    .webSearchOptions(webSearchOptions)
-                    .build();
+    private synchronized void recordWastedSearch() {
+        rollWasteMinute();
+        wastedSearches++;
+    }
 
-            return chatClient.prompt()
-                    .system(systemPrompt)
-                    .user(userPrompt)
-                    .options(options)
-                    .call()
-                    .content();
+    private void rollWasteMinute() {
+        long minute = System.currentTimeMillis() / 60_000;
+        if (minute != wasteMinute) {
+            wasteMinute = minute;
+            wastedSearches = 0;
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Error during IRS query", e);
-            return "Error retrieving IRS information. Please try again later.";
+    private String search(String question) {
+        OpenAiApi.ChatCompletionRequest.WebSearchOptions webSearchOptions = 
+            new OpenAiApi.ChatCompletionRequest.WebSearchOptions(
+                OpenAiApi.ChatCompletionRequest.WebSearchOptions.SearchContextSize.MEDIUM,
+                null
+            );
+
+        OpenAiChatOptions options = OpenAiChatOptions.builder()
+                .webSearchOptions(webSearchOptions)
+                .build();
+
+        String answer = promptCacheMetrics.content("web-search", chatClient.prompt()
+                .system(systemPrompt)
+                .user("USER QUESTION:\n" + question)
+                .options(options)
+                .call()
+                .chatResponse());
+        if (answer == null || answer.isBlank()) {
+            throw new IllegalStateException("Web search returned no answer");
         }
+        return answer;
     }
 
+    private String lookup(Lookup lookup) {
+        CachedAnswer cached = lookupAnswers.get(lookup);
+        if (cached != null) {
+            Duration age = Duration.between(cached.fetchedAt(), Instant.now());
+            Duration ttl = lookupTtls.get(lookup);
+            if (age.compareTo(ttl) <= 0) {
+                return cached.answer();
+            }
+            if (age.compareTo(ttl.plus(staleWindow)) <= 0) {
+                refresh(lookup);
+                return cached.answer();
+            }
+        }
+        try {
+            return refresh(lookup).join();
+        } catch (CompletionException e) {
+            log.error("Error during IRS lookup {}", lookup, e.getCause());
+            // An old answer is still more useful than an error
+            return cached != null ? cached.answer() : SEARCH_ERROR_MESSAGE;
+        }
+    }
+
+    /**
+     * Starts a refresh of {@code lookup} unless one is already running, and returns the running one.
+     */
+    private CompletableFuture<String> refresh(Lookup lookup) {
+        CompletableFuture<String> refresh = new CompletableFuture<>();
+        CompletableFuture<String> running = lookupRefreshes.putIfAbsent(lookup, refresh);
+        if (running != null) {
+            return running;
+        }
+        executor.execute(() -> {
+            try {
+                log.info("Refreshing IRS lookup {}", lookup);
+                String answer = search(lookup.question);
+                lookupAnswers.put(lookup, new CachedAnswer(answer, Instant.now()));
+                lookupRefreshes.remove(lookup, refresh);
+                refresh.complete(answer);
+            } catch (Exception e) {
+                lookupRefreshes.remove(lookup, refresh);
+                refresh.completeExceptionally(e);
+            }
+        });
+        return refresh;
+    }
+
+    /**
+     * The relevance of {@code question} when it is known without calling the validator model:
+     * settled by the local {@link TaxRelevanceGate} or by a cached verdict. Null otherwise.
+     */
+    private Boolean knownRelevance(String question) {
+        TaxRelevanceGate.Verdict verdict = relevanceGate.classify(question);
+        if (verdict != TaxRelevanceGate.Verdict.UNCERTAIN) {
+            log.info("Local relevance verdict for '{}': {}", question, verdict);
+            return verdict == TaxRelevanceGate.Verdict.RELATED;
+        }
+        synchronized (validationVerdicts) {
+            return validationVerdicts.get(TaxRelevanceGate.normalize(question));
+        }
+    }
+
+    /**
+     * Questions with a lexicon term are accepted locally and plainly off-topic ones rejected;
+     * every other question reaches the validator model. Its verdicts are cached by normalized question, and identical questions
+     * arriving together share one validation call.
+     */
     private boolean isTaxRelated(String question) {
+        Boolean known = knownRelevance(question);
+        if (known != null) {
+            return known;
+        }
+        String key = TaxRelevanceGate.normalize(question);
+        CompletableFuture<Boolean> mine = new CompletableFuture<>();
+        CompletableFuture<Boolean> running = validationsInFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return running.join();
+        }
         try {
-            String validationPrompt = """
-                Determine if the following question relates to U.S. federal income taxes or IRS topics such as:
-                - tax brackets, deductions, credits
-                - filing status, dependents
-                - tax forms (1040, W-2, 1099, etc.)
-                - IRS publications or policies
-                - AGI, taxable income calculations
-                
-                Respond only with "YES" or "NO".
-                
-                Question: %s
-                """.formatted(question);
-            
-            String validation = validationClient.prompt()
-                    .user(validationPrompt)
-                    .call()
-                    .content();
-            
-            boolean result = validation != null && validation.trim().toUpperCase().startsWith("YES");
-            log.info("Validation for '{}': {} (model said '{}')", question, result, validation);
+            boolean result = validate(question);
+            synchronized (validationVerdicts) {
+                validationVerdicts.put(key, result);
+            }
+            mine.complete(result);
             return result;
         } catch (Exception e) {
             log.error("Validation model error", e);
+            mine.complete(false);
             return false;
+        } finally {
+            validationsInFlight.remove(key, mine);
         }
     }
 
-    private String buildUserPrompt(String question) {
-        return """
-            CRITICAL: This question is about TAX YEAR 2025 (filing in 2026).
-            This is for income earned in 2025, to be filed in 2026.
-            Do NOT provide information for tax year 2024 or any other year.
-            
-            USER CONTEXT:
-            Tax Year: 2025 (filing in 2026)
-            Income Year: 2025
-            Filing Year: 2026
-            
-            USER QUESTION:
-            %s
-            
-            ---
-            INSTRUCTION TO ASSISTANT:
-            1. Search ONLY for tax year 2025 information from IRS.gov.
-            2. If the user provides specific income amounts and asks for calculations (EITC, tax owed, etc.):
-               - Use the official 2025 IRS tables, formulas, and thresholds from IRS.gov
-               - Perform the calculation step-by-step showing the formula used
-               - Cite the specific IRS publication or table used (e.g., "IRS Publication 596, EITC Table for 2025")
-               - Clearly state any assumptions made
-            3. If 2025 information is not yet available, explicitly state: "Tax year 2025 information is not yet published by the IRS. The most recent available is [year]."
-            4. NEVER provide 2024 or prior year information without clearly stating the year.
-            5. Provide a factual, compliant, and concise answer with IRS.gov sources.
-            6. End with: "This is an educational estimate based on IRS guidelines. For your actual tax situation, please consult a tax professional or use official IRS tools."
-            """.formatted(question);
+    private boolean validate(String question) {
+        String validation = promptCacheMetrics.content("tax-validation", validationClient.prompt()
+                .system(VALIDATION_INSTRUCTIONS)
+                .user("Question: " + question)
+                .call()
+                .chatResponse());
+
+        boolean result = validation != null && validation.trim().toUpperCase().startsWith("YES");
+        log.info("Validation for '{}': {} (model said '{}')", question, result, validation);
+        return result;
     }
 
     public String getFilingDeadlines2025() {
-        return queryIRS2025("What are the tax year 2025 IRS tax filing deadlines (filing in 2026)?", false);
+        return lookup(Lookup.FILING_DEADLINES);
     }
 
     public String getLatestIRSUpdates2025() {
-        return queryIRS2025("What are the latest IRS updates and announcements for tax year 2025?", false);
+        return lookup(Lookup.LATEST_UPDATES);
     }
 
     public String getTaxBrackets2025() {
-        return queryIRS2025("What are the tax year 2025 federal income tax brackets?", false);
+        return lookup(Lookup.TAX_BRACKETS);
     }
 
     public String getStandardDeduction2025() {
-        return queryIRS2025("What is the standard deduction amount for tax year 2025?", false);
+        return lookup(Lookup.STANDARD_DEDUCTION);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
     }
 }
@@ -0,0 +1,143 @@
+package com.mohbility.springai.service;
+
+import com.mohbility.springai.model.PacketLayout;
+import com.mohbility.springai.service.DocumentDecoder.DecodedDocument;
+import com.mohbility.springai.service.DocumentDecoder.DecodedPage;
+import com.mohbility.springai.service.ImagePreprocessor.PreparedImage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ResponseEntity;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Splits a multi-page upload into individual forms. One call over small page renditions
+ * classifies every page; blank, cover and instruction pages are dropped so they are never sent
+ * at full resolution. Any doubt falls back to treating the whole upload as one form.
+ */
+@Service
+public class PacketSegmenter {
+
+    private static final Logger log = LoggerFactory.getLogger(PacketSegmenter.class);
+    private static final Set<String> EXTRACTABLE_TYPES = Set.of("W2", "1099-NEC");
+
+    public record FormPages(String formType, List<DecodedPage> pages) {
+
+        /**
+         * Prepares any page images not yet encoded, see {@link DecodedPage#image()}.
+         */
+        public List<PreparedImage> images() throws IOException {
+            List<PreparedImage> images = new ArrayList<>(pages.size());
+            for (DecodedPage page : pages) {
+                images.add(page.image());
+            }
+            return images;
+        }
+    }
+
+    private final ChatClient chatClient;
+    private final String classificationPrompt;
+    private final PromptCacheMetrics promptCacheMetrics;
+
+    public PacketSegmenter(
+            OpenAiClientFactory clientFactory,
+            @Value("${openai.page-classification-prompt-file}") Resource classificationPromptResource,
+            PromptCacheMetrics promptCacheMetrics
+    ) throws IOException {
+        this.chatClient = clientFactory.builder(OpenAiClientFactory.CallType.EXTRACTION).build();
+        this.promptCacheMetrics = promptCacheMetrics;
+        this.classificationPrompt = classificationPromptResource.getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Identifies the prompt, so cached extractions are invalidated when it changes.
+     */
+    public String promptFingerprint() {
+        return classificationPrompt;
+    }
+
+    public List<FormPages> segment(DecodedDocument decoded, String sessionId) {
+        List<DecodedPage> pages = decoded.pages();
+        if (pages.size() <= 1 || pages.stream().anyMatch(page -> page.classificationImage() == null)) {
+            return List.of(new FormPages(null, pages));
+        }
+
+        PacketLayout layout;
+        try {
+            ResponseEntity<ChatResponse, PacketLayout> response = chatClient.prompt()
+                    .system(classificationPrompt)
+                    .user(u -> {
+                        u.text("Classify the " + pages.size() + " attached pages, in order.");
+                        pages.forEach(page -> u.media(page.classificationImage().mimeType(),
+                                new ByteArrayResource(page.classificationImage().bytes())));
+                    })
+                    .advisors(a -> a.param(ModelCallScheduler.SESSION_KEY, sessionId))
+                    .call()
+                    .responseEntity(PacketLayout.class);
+            promptCacheMetrics.record("page-classification", response.response());
+            layout = response.entity();
+        } catch (Exception e) {
+            log.warn("Page classification failed, extracting all {} pages as one form: {}", pages.size(), e.getMessage());
+            return List.of(new FormPages(null, pages));
+        }
+
+        List<FormPages> forms = toForms(layout, pages);
+        if (forms.isEmpty()) {
+            log.warn("Page classification found no W-2 or 1099-NEC forms, extracting all {} pages as one form", pages.size());
+            return List.of(new FormPages(null, pages));
+        }
+        int kept = forms.stream().mapToInt(form -> form.pages().size()).sum();
+        log.info("Split {} pages into {} form(s), skipping {} page(s)", pages.size(), forms.size(), pages.size() - kept);
+        return forms;
+    }
+
+    private List<FormPages> toForms(PacketLayout layout, List<DecodedPage> pages) {
+        List<FormPages> forms = new ArrayList<>();
+        if (layout == null || layout.getForms() == null) {
+            return forms;
+        }
+
+        Set<Integer> assigned = new TreeSet<>();
+        for (PacketLayout.FormSegment segment : layout.getForms()) {
+            if (segment == null || segment.getPages() == null) {
+                continue;
+            }
+            // Page numbers are 1-based; ignore out-of-range numbers and pages already claimed by another form
+            Set<Integer> pageNumbers = new TreeSet<>();
+            for (Integer page : segment.getPages()) {
+                if (page != null && page >= 1 && page <= pages.size() && assigned.add(page)) {
+                    pageNumbers.add(page);
+                }
+            }
+            String formType = segment.getForm_type();
+            if (pageNumbers.isEmpty()) {
+                continue;
+            }
+            if (formType == null || !EXTRACTABLE_TYPES.contains(formType)) {
+                log.info("Skipping pages {} classified as {}", pageNumbers, formType);
+                continue;
+            }
+            forms.add(new FormPages(formType, pageNumbers.stream().map(page -> pages.get(page - 1)).toList()));
+        }
+
+        Set<Integer> skipped = layout.getSkipped_pages() != null ? new HashSet<>(layout.getSkipped_pages()) : Set.of();
+        for (int page = 1; page <= pages.size(); page++) {
+            if (!assigned.contains(page) && !skipped.contains(page)) {
+                log.warn("Page classification did not place page {}", page);
+            }
+        }
+        return forms;
+    }
+}
@@ -0,0 +1,158 @@
+package com.mohbility.springai.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local, model-free page triage that runs while a PDF is rasterized. Pages are labelled from a
+ * coarse ink-coverage scan, a {@link PerceptualHash} and text-layer keywords; blank pages, instruction
+ * backs and repeated copies (Copy B/C/2) are dropped before they are encoded or sent anywhere.
+ */
+@Service
+public class PagePreClassifier {
+
+    public enum PageLabel {
+        W2, NEC_1099, INSTRUCTIONS, DUPLICATE, BLANK, UNKNOWN;
+
+        public boolean isForwarded() {
+            return this == W2 || this == NEC_1099 || this == UNKNOWN;
+        }
+    }
+
+    private static final int SAMPLE_SIZE = 64;
+    private static final int INK_LUMA = 200;
+    private static final Pattern AMOUNT = Pattern.compile("\\d[\\d,]*\\.\\d{2}|\\d{2}-\\d{7}|\\d{3}-\\d{2}-\\d{4}|x{3}-x{2}-\\d{4}");
+    private static final List<String> INSTRUCTION_MARKERS = List.of(
+            "instructions for employee", "instructions for recipient", "notice to employee",
+            "future developments", "box 12 codes", "instructions for payer");
+
+    private final boolean enabled;
+    private final double blankInkRatio;
+    private final int duplicateHashDistance;
+
+    public PagePreClassifier(
+            @Value("${openai.preclassifier.enabled:true}") boolean enabled,
+            @Value("${openai.preclassifier.blank-ink-ratio:0.004}") double blankInkRatio,
+            @Value("${openai.preclassifier.duplicate-hash-distance:24}") int duplicateHashDistance
+    ) {
+        this.enabled = enabled;
+        this.blankInkRatio = blankInkRatio;
+        this.duplicateHashDistance = duplicateHashDistance;
+    }
+
+    /**
+     * Identifies the settings that decide which pages reach the model, for extraction cache keys.
+     */
+    public String settingsFingerprint() {
+        return enabled + "/" + blankInkRatio + "/" + duplicateHashDistance;
+    }
+
+    /**
+     * Starts triage for one document; the returned filter remembers the pages it has already
+     * forwarded so later copies of them can be recognised.
+     */
+    public PageFilter newDocument() {
+        return new PageFilter();
+    }
+
+    public class PageFilter {
+        private final PerceptualIndex<Boolean> forwardedHashes = new PerceptualIndex<>(duplicateHashDistance);
+        private final Set<String> forwardedFingerprints = new HashSet<>();
+
+        private PageFilter() {
+        }
+
+        public PageLabel classify(BufferedImage image, String text, long[] hash) {
+            if (!enabled) {
+                return PageLabel.UNKNOWN;
+            }
+            boolean hasText = text != null && !text.isEmpty();
+            String lower = hasText ? text.toLowerCase(Locale.ROOT) : "";
+            String fingerprint = hasText ? valueFingerprint(text) : "";
+
+            if (!hasText && inkRatio(image) < blankInkRatio) {
+                return PageLabel.BLANK;
+            }
+            if (hasText && isInstructions(lower, fingerprint)) {
+                return PageLabel.INSTRUCTIONS;
+            }
+
+            // Copies of one form carry the same amounts and identifiers; scans without a text
+            // layer only match when they are near-identical images.
+            if (!fingerprint.isEmpty() ? forwardedFingerprints.contains(fingerprint) : forwardedHashes.findNear(hash).isPresent()) {
+                return PageLabel.DUPLICATE;
+            }
+            if (!fingerprint.isEmpty()) {
+                forwardedFingerprints.add(fingerprint);
+            } else {
+                forwardedHashes.add(hash, Boolean.TRUE);
+            }
+
+            if (lower.contains("wage and tax statement") || lower.contains("form w-2")) {
+                return PageLabel.W2;
+            }
+            if (lower.contains("1099-nec") || lower.contains("nonemployee compensation")) {
+                return PageLabel.NEC_1099;
+            }
+            return PageLabel.UNKNOWN;
+        }
+    }
+
+    /**
+     * Whether a text layer carries filled-in form values (amounts, EINs or SSNs) rather than
+     * just the printed form labels.
+     */
+    public static boolean hasFormValues(String text) {
+        return text != null && AMOUNT.matcher(text.toLowerCase(Locale.ROOT)).find();
+    }
+
+    /**
+     * Instruction backs are mostly prose: several instruction headings and no form values.
+     */
+    private static boolean isInstructions(String lowerText, String fingerprint) {
+        int markers = 0;
+        for (String marker : INSTRUCTION_MARKERS) {
+            if (lowerText.contains(marker)) {
+                markers++;
+            }
+        }
+        return markers >= 2 && fingerprint.isEmpty();
+    }
+
+    /**
+     * Sorted set of the amounts, EINs and SSNs printed on the page, or empty when there are none.
+     */
+    private static String valueFingerprint(String text) {
+        Set<String> values = new TreeSet<>();
+        Matcher matcher = AMOUNT.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            values.add(matcher.group());
+        }
+        return values.isEmpty() ? "" : String.join("|", values);
+    }
+
+    private static double inkRatio(BufferedImage image) {
+        int stepX = Math.max(1, image.getWidth() / SAMPLE_SIZE);
+        int stepY = Math.max(1, image.getHeight() / SAMPLE_SIZE);
+        int samples = 0;
+        int ink = 0;
+        for (int y = 0; y < image.getHeight(); y += stepY) {
+            for (int x = 0; x < image.getWidth(); x += stepX) {
+                samples++;
+                if (PerceptualHash.luma(image.getRGB(x, y)) < INK_LUMA) {
+                    ink++;
+                }
+            }
+        }
+        return samples == 0 ? 0.0 : (double) ink / samples;
+    }
+}
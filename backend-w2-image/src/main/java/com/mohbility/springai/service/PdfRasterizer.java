@@ -0,0 +1,95 @@
+package com.mohbility.springai.service;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Renders PDF pages one at a time and hands each page to a callback before rendering the next,
+ * so only a single page raster is alive per document. Documents are parsed from a stream with
+ * PDFBox scratch memory that spills to temp files, and a semaphore bounds concurrent renders.
+ */
+@Service
+public class PdfRasterizer {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfRasterizer.class);
+
+    private final long maxMainMemoryBytes;
+    private final Semaphore renderPermits;
+
+    public PdfRasterizer(
+            @Value("${openai.pdf.scratch-memory-bytes:16777216}") long maxMainMemoryBytes,
+            @Value("${openai.pdf.max-concurrent-renders:2}") int maxConcurrentRenders
+    ) {
+        this.maxMainMemoryBytes = maxMainMemoryBytes;
+        this.renderPermits = new Semaphore(Math.max(1, maxConcurrentRenders), true);
+    }
+
+    /**
+     * Receives each rendered page. {@code text} is the page's text layer when it was requested,
+     * empty for scanned pages, and null otherwise.
+     */
+    @FunctionalInterface
+    public interface PageHandler {
+        void accept(int pageIndex, int pageCount, BufferedImage image, String text) throws IOException;
+    }
+
+    public void rasterize(InputStream pdf, float dpi, PageHandler handler) throws IOException {
+        rasterize(pdf, dpi, Integer.MAX_VALUE, false, handler);
+    }
+
+    public void rasterize(InputStream pdf, float dpi, int maxPages, boolean withText, PageHandler handler) throws IOException {
+        try (PDDocument doc = PDDocument.load(pdf, MemoryUsageSetting.setupMixed(maxMainMemoryBytes))) {
+            PDFRenderer renderer = new PDFRenderer(doc);
+            PDFTextStripper stripper = null;
+            if (withText) {
+                // Position-sorted text keeps each box label next to its value on generated forms
+                stripper = new PDFTextStripper();
+                stripper.setSortByPosition(true);
+            }
+            int pageCount = Math.min(doc.getNumberOfPages(), maxPages);
+            log.debug("Rasterizing {} PDF pages at {} DPI", pageCount, dpi);
+
+            for (int i = 0; i < pageCount; i++) {
+                String text = stripper != null ? pageText(stripper, doc, i) : null;
+                BufferedImage image = renderPage(renderer, i, dpi);
+                try {
+                    handler.accept(i, pageCount, image, text);
+                } finally {
+                    image.flush();
+                }
+            }
+        }
+    }
+
+    private String pageText(PDFTextStripper stripper, PDDocument doc, int pageIndex) throws IOException {
+        stripper.setStartPage(pageIndex + 1);
+        stripper.setEndPage(pageIndex + 1);
+        return stripper.getText(doc).strip();
+    }
+
+    private BufferedImage renderPage(PDFRenderer renderer, int pageIndex, float dpi) throws IOException {
+        try {
+            renderPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to render PDF page", e);
+        }
+        try {
+            return renderer.renderImageWithDPI(pageIndex, dpi, ImageType.RGB);
+        } finally {
+            renderPermits.release();
+        }
+    }
+}
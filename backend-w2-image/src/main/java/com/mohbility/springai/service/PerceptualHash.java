@@ -0,0 +1,73 @@
+package com.mohbility.springai.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * 4096-bit difference hash of a page image. The page is averaged down to a 65x64 grayscale
+ * grid, and each bit records whether a cell is clearly brighter than its right-hand neighbour.
+ * Cells within {@link #MARGIN} of each other count as equal, so flat paper areas do not turn
+ * compression noise into bit flips. The grid is fine enough that different values typed into
+ * the same form template change the hash.
+ */
+final class PerceptualHash {
+
+    static final int BITS = 64 * 64;
+    private static final int COLUMNS = 65;
+    private static final int ROWS = 64;
+    private static final double MARGIN = 2.0;
+
+    private PerceptualHash() {
+    }
+
+    static long[] of(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double[] sums = new double[COLUMNS * ROWS];
+        int[] counts = new int[COLUMNS * ROWS];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int cellRow = y * ROWS / height;
+            for (int x = 0; x < width; x++) {
+                int cell = cellRow * COLUMNS + x * COLUMNS / width;
+                sums[cell] += luma(row[x]);
+                counts[cell]++;
+            }
+        }
+
+        long[] hash = new long[BITS / 64];
+        int bit = 0;
+        for (int r = 0; r < ROWS; r++) {
+            for (int c = 0; c < COLUMNS - 1; c++, bit++) {
+                int left = r * COLUMNS + c;
+                if (mean(sums, counts, left) > mean(sums, counts, left + 1) + MARGIN) {
+                    hash[bit >>> 6] |= 1L << (bit & 63);
+                }
+            }
+        }
+        return hash;
+    }
+
+    static int distance(long[] a, long[] b) {
+        int distance = 0;
+        for (int i = 0; i < a.length; i++) {
+            distance += Long.bitCount(a[i] ^ b[i]);
+        }
+        return distance;
+    }
+
+    static boolean bit(long[] hash, int index) {
+        return (hash[index >>> 6] & (1L << (index & 63))) != 0;
+    }
+
+    private static double mean(double[] sums, int[] counts, int cell) {
+        return counts[cell] == 0 ? 255.0 : sums[cell] / counts[cell];
+    }
+
+    static int luma(int rgb) {
+        int r = (rgb >> 16) & 0xff;
+        int g = (rgb >> 8) & 0xff;
+        int b = rgb & 0xff;
+        return (r * 299 + g * 587 + b * 114) / 1000;
+    }
+}
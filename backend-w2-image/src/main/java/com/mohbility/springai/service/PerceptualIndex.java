@@ -0,0 +1,66 @@
+package com.mohbility.springai.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Near-duplicate lookup over {@link PerceptualHash} values. The hash is cut into
+ * {@code maxDistance + 1} bands; two hashes within {@code maxDistance} bits must agree exactly on
+ * at least one band, so a lookup only compares against entries sharing a band key instead of
+ * scanning everything.
+ */
+final class PerceptualIndex<T> {
+
+    private record Entry<T>(long[] hash, T value) {
+    }
+
+    private final int maxDistance;
+    private final int bands;
+    private final List<Map<Long, List<Entry<T>>>> tables;
+
+    PerceptualIndex(int maxDistance) {
+        this.maxDistance = Math.max(0, maxDistance);
+        this.bands = Math.min(PerceptualHash.BITS, this.maxDistance + 1);
+        this.tables = new ArrayList<>(bands);
+        for (int i = 0; i < bands; i++) {
+            tables.add(new HashMap<>());
+        }
+    }
+
+    synchronized Optional<T> findNear(long[] hash) {
+        for (int band = 0; band < bands; band++) {
+            List<Entry<T>> candidates = tables.get(band).get(bandKey(hash, band));
+            if (candidates == null) {
+                continue;
+            }
+            for (Entry<T> candidate : candidates) {
+                if (PerceptualHash.distance(hash, candidate.hash()) <= maxDistance) {
+                    return Optional.of(candidate.value());
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    synchronized void add(long[] hash, T value) {
+        Entry<T> entry = new Entry<>(hash, value);
+        for (int band = 0; band < bands; band++) {
+            tables.get(band).computeIfAbsent(bandKey(hash, band), k -> new ArrayList<>(1)).add(entry);
+        }
+    }
+
+    private long bandKey(long[] hash, int band) {
+        int start = band * PerceptualHash.BITS / bands;
+        int end = (band + 1) * PerceptualHash.BITS / bands;
+        // FNV-1a over the band's bits
+        long key = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            key ^= PerceptualHash.bit(hash, i) ? 1 : 0;
+            key *= 0x100000001b3L;
+        }
+        return key;
+    }
+}
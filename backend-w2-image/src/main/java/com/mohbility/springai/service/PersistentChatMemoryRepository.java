@@ -0,0 +1,220 @@
+package com.mohbility.springai.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chat memory repository backed by one JSON file per conversation, so conversations survive a
+ * restart and the eviction of the session they belong to. Recently used conversations are also
+ * held in memory, least recently used first out once {@code max-cached-conversations} is reached;
+ * an evicted conversation is read back from its file on next use. With no directory configured
+ * the repository is memory-only and the cap drops history for good. Files untouched for longer
+ * than the retention period are purged.
+ */
+@Service
+public class PersistentChatMemoryRepository implements ChatMemoryRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(PersistentChatMemoryRepository.class);
+
+    private record StoredMessage(String type, String text) {
+    }
+
+    private record StoredConversation(String conversationId, List<StoredMessage> messages) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final Duration retention;
+    private final int maxCachedConversations;
+    private final Map<String, List<Message>> conversations;
+
+    public PersistentChatMemoryRepository(
+            ObjectMapper objectMapper,
+            @Value("${openai.chat-memory.dir:data/chat-memory}") String dir,
+            @Value("${openai.chat-memory.retention:P30D}") Duration retention,
+            @Value("${openai.chat-memory.max-cached-conversations:1000}") int maxCachedConversations
+    ) throws IOException {
+        this.objectMapper = objectMapper;
+        this.directory = dir == null || dir.isBlank() ? null : Path.of(dir);
+        this.retention = retention;
+        this.maxCachedConversations = maxCachedConversations;
+        this.conversations = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<Message>> eldest) {
+                return size() > PersistentChatMemoryRepository.this.maxCachedConversations;
+            }
+        };
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        List<String> ids;
+        synchronized (conversations) {
+            ids = new ArrayList<>(conversations.keySet());
+        }
+        if (directory != null) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json")) {
+                for (Path file : files) {
+                    String id = read(file).conversationId();
+                    if (!ids.contains(id)) {
+                        ids.add(id);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Could not list chat memory directory {}: {}", directory, e.getMessage());
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        synchronized (conversations) {
+            List<Message> cached = conversations.get(conversationId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        List<Message> loaded = load(conversationId);
+        if (loaded.isEmpty()) {
+            // Lookups of unknown conversations must not take up a slot
+            return loaded;
+        }
+        synchronized (conversations) {
+            return conversations.computeIfAbsent(conversationId, id -> loaded);
+        }
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        List<Message> copy = List.copyOf(messages);
+        synchronized (conversations) {
+            conversations.put(conversationId, copy);
+        }
+        write(conversationId, copy);
+    }
+
+    /**
+     * Drops the in-memory copy of a conversation and keeps its file, which {@link #purgeExpired}
+     * removes once the retention period has passed.
+     */
+    public void evict(String conversationId) {
+        synchronized (conversations) {
+            conversations.remove(conversationId);
+        }
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        synchronized (conversations) {
+            conversations.remove(conversationId);
+        }
+        if (directory != null) {
+            try {
+                Files.deleteIfExists(fileFor(conversationId));
+            } catch (IOException e) {
+                log.warn("Could not delete chat memory for {}: {}", conversationId, e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${openai.chat-memory.purge-interval:PT1H}")
+    public void purgeExpired() {
+        if (directory == null) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(retention);
+        int purged = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    String conversationId = read(file).conversationId();
+                    synchronized (conversations) {
+                        conversations.remove(conversationId);
+                    }
+                    Files.deleteIfExists(file);
+                    purged++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not purge chat memory directory {}: {}", directory, e.getMessage());
+        }
+        if (purged > 0) {
+            log.info("Purged {} expired conversation(s) from chat memory", purged);
+        }
+    }
+
+    private List<Message> load(String conversationId) {
+        if (directory == null) {
+            return List.of();
+        }
+        Path file = fileFor(conversationId);
+        if (!Files.exists(file)) {
+            return List.of();
+        }
+        List<Message> messages = new ArrayList<>();
+        for (StoredMessage stored : read(file).messages()) {
+            messages.add(switch (MessageType.fromValue(stored.type())) {
+                case USER -> new UserMessage(stored.text());
+                case ASSISTANT -> new AssistantMessage(stored.text());
+                default -> new SystemMessage(stored.text());
+            });
+        }
+        return List.copyOf(messages);
+    }
+
+    private StoredConversation read(Path file) {
+        try {
+            return objectMapper.readValue(file.toFile(), StoredConversation.class);
+        } catch (IOException e) {
+            log.warn("Could not read chat memory {}: {}", file, e.getMessage());
+            return new StoredConversation("", List.of());
+        }
+    }
+
+    private void write(String conversationId, List<Message> messages) {
+        if (directory == null) {
+            return;
+        }
+        List<StoredMessage> stored = messages.stream()
+                .map(message -> new StoredMessage(message.getMessageType().getValue(), message.getText()))
+                .toList();
+        Path file = fileFor(conversationId);
+        try {
+            Path tmp = Files.createTempFile(directory, "conversation", ".tmp");
+            objectMapper.writeValue(tmp.toFile(), new StoredConversation(conversationId, stored));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not persist chat memory for {}: {}", conversationId, e.getMessage());
+        }
+    }
+
+    private Path fileFor(String conversationId) {
+        return directory.resolve(ExtractionResultCache.sha256(conversationId) + ".json");
+    }
+}
@@ -0,0 +1,62 @@
+package com.mohbility.springai.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds preview thumbnails by document id so upload responses can reference them by URL
+ * instead of inlining base64 data. The store is LRU and bounded by total thumbnail bytes.
+ */
+@Service
+public class PreviewStore {
+
+    public record Preview(byte[] bytes, String etag) {
+    }
+
+    private final long maxBytes;
+    private final Map<String, Preview> previews = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public PreviewStore(@Value("${openai.preview.max-store-bytes:67108864}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public void put(String documentId, byte[] thumbnail) {
+        if (documentId == null || thumbnail == null || thumbnail.length > maxBytes) {
+            return;
+        }
+        Preview preview = new Preview(thumbnail, "\"" + ExtractionResultCache.sha256(thumbnail).substring(0, 32) + "\"");
+        synchronized (previews) {
+            Preview previous = previews.put(documentId, preview);
+            if (previous != null) {
+                totalBytes -= previous.bytes().length;
+            }
+            totalBytes += thumbnail.length;
+            evictOverflow();
+        }
+    }
+
+    public Preview get(String documentId) {
+        synchronized (previews) {
+            return previews.get(documentId);
+        }
+    }
+
+    public boolean contains(String documentId) {
+        synchronized (previews) {
+            return previews.containsKey(documentId);
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Preview> eldest = previews.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().bytes().length;
+            eldest.remove();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.mohbility.springai.service;
+
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-prompt counters for provider-side prompt caching, read from the usage block of each
+ * response. Prompts keep their static instructions in a stable leading system message so the
+ * provider can reuse it; the hit rate here shows how often that actually happens.
+ */
+@Service
+public class PromptCacheMetrics {
+
+    private static final class Counters {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder cachedTokens = new LongAdder();
+    }
+
+    private final Map<String, Counters> prompts = new ConcurrentHashMap<>();
+
+    /**
+     * Records the response's token usage under {@code prompt} and returns its text.
+     */
+    public String content(String prompt, ChatResponse response) {
+        record(prompt, response);
+        return text(response);
+    }
+
+    /**
+     * Streams the text of each chunk, recording usage from the chunk that carries it.
+     */
+    public Flux<String> content(String prompt, Flux<ChatResponse> responses) {
+        return responses
+                .doOnNext(response -> record(prompt, response))
+                .mapNotNull(PromptCacheMetrics::text);
+    }
+
+    public void record(String prompt, ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage == null || usage.getPromptTokens() == null || usage.getPromptTokens() == 0) {
+            return;
+        }
+        long cached = 0;
+        if (usage.getNativeUsage() instanceof OpenAiApi.Usage openAiUsage
+                && openAiUsage.promptTokensDetails() != null
+                && openAiUsage.promptTokensDetails().cachedTokens() != null) {
+            cached = openAiUsage.promptTokensDetails().cachedTokens();
+        }
+
+        Counters counters = prompts.computeIfAbsent(prompt, k -> new Counters());
+        counters.requests.increment();
+        counters.promptTokens.add(usage.getPromptTokens());
+        counters.cachedTokens.add(cached);
+        if (cached > 0) {
+            counters.hits.increment();
+        }
+    }
+
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> view = new LinkedHashMap<>();
+        prompts.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    Counters counters = entry.getValue();
+                    long requests = counters.requests.sum();
+                    long promptTokens = counters.promptTokens.sum();
+                    long cachedTokens = counters.cachedTokens.sum();
+                    Map<String, Object> stats = new LinkedHashMap<>();
+                    stats.put("requests", requests);
+                    stats.put("prefixHitRate", requests == 0 ? 0.0 : (double) counters.hits.sum() / requests);
+                    stats.put("promptTokens", promptTokens);
+                    stats.put("cachedTokens", cachedTokens);
+                    stats.put("cachedTokenRatio", promptTokens == 0 ? 0.0 : (double) cachedTokens / promptTokens);
+                    view.put(entry.getKey(), stats);
+                });
+        return view;
+    }
+
+    private static String text(ChatResponse response) {
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+            return null;
+        }
+        return response.getResult().getOutput().getText();
+    }
+}
@@ -0,0 +1,112 @@
+package com.mohbility.springai.service;
+
+import com.mohbility.springai.model.TaxDocumentResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Running totals and document summary for one recipient, updated as each document is cached.
+ * The rendered system prompt is memoized until the recipient's document set changes.
+ */
+public class RecipientAggregate {
+
+    private final String recipientName;
+    private final List<TaxDocumentResult> documents = new ArrayList<>();
+    private final StringBuilder documentSummary = new StringBuilder();
+    private double totalIncome;
+    private double totalFederalTax;
+    private double totalSSWages;
+    private double totalMedicareWages;
+    private double totalStateIncome;
+    private double totalStateTax;
+    private String systemPrompt;
+
+    RecipientAggregate(String recipientName) {
+        this.recipientName = recipientName;
+    }
+
+    synchronized void add(TaxDocumentResult doc) {
+        documents.add(doc);
+        String type = doc.getDocument_type();
+        documentSummary.append(String.format("\nDocument #%d (%s):\n", documents.size(), type));
+        documentSummary.append(String.format("  Payer: %s\n", doc.getPayer_name() != null ? doc.getPayer_name() : "N/A"));
+
+        if ("W2".equals(type)) {
+            double wages = valueOf(doc.getWages_box1());
+            double federalTax = valueOf(doc.getFederal_income_tax_withheld_box2());
+            totalIncome += wages;
+            totalFederalTax += federalTax;
+            totalSSWages += valueOf(doc.getSocial_security_wages_box3());
+            totalMedicareWages += valueOf(doc.getMedicare_wages_box5());
+            documentSummary.append(String.format("  Wages: $%.2f\n", wages));
+            documentSummary.append(String.format("  Federal Tax Withheld: $%.2f\n", federalTax));
+        } else if ("1099-NEC".equals(type)) {
+            double compensation = valueOf(doc.getNonemployee_compensation_box1());
+            double federalTax = valueOf(doc.getFederal_income_tax_withheld_box4());
+            totalIncome += compensation;
+            totalFederalTax += federalTax;
+            documentSummary.append(String.format("  Nonemployee Compensation: $%.2f\n", compensation));
+            documentSummary.append(String.format("  Federal Tax Withheld: $%.2f\n", federalTax));
+        }
+        totalStateIncome += valueOf(doc.getState_wages());
+        totalStateTax += valueOf(doc.getState_income_tax());
+        systemPrompt = null;
+    }
+
+    /**
+     * Returns the memoized system prompt, rendering it with {@code renderer} only after the
+     * document set has changed.
+     */
+    public synchronized String systemPrompt(Function<RecipientAggregate, String> renderer) {
+        if (systemPrompt == null) {
+            systemPrompt = renderer.apply(this);
+        }
+        return systemPrompt;
+    }
+
+    public String getRecipientName() {
+        return recipientName;
+    }
+
+    public synchronized List<TaxDocumentResult> getDocuments() {
+        return List.copyOf(documents);
+    }
+
+    public synchronized int getDocumentCount() {
+        return documents.size();
+    }
+
+    public synchronized String getDocumentSummary() {
+        return documentSummary.toString();
+    }
+
+    public synchronized double getTotalIncome() {
+        return totalIncome;
+    }
+
+    public synchronized double getTotalFederalTax() {
+        return totalFederalTax;
+    }
+
+    public synchronized double getTotalSSWages() {
+        return totalSSWages;
+    }
+
+    public synchronized double getTotalMedicareWages() {
+        return totalMedicareWages;
+    }
+
+    public synchronized double getTotalStateIncome() {
+        return totalStateIncome;
+    }
+
+    public synchronized double getTotalStateTax() {
+        return totalStateTax;
+    }
+
+    private static double valueOf(Double value) {
+        return value != null ? value : 0.0;
+    }
+}
@@ -0,0 +1,215 @@
+package com.mohbility.springai.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Answers to free-text search questions, looked up by meaning rather than exact text. Questions
+ * are embedded with {@link HashingTextEmbedder} and indexed with random-hyperplane LSH: each table
+ * keys an entry by the signs of its embedding against a few fixed hyperplanes, so paraphrases
+ * land in a shared bucket in at least one table and a lookup only scores those candidates.
+ * A candidate is a hit when its cosine similarity reaches the threshold and both questions
+ * mention the same key terms: numbers and form names (a 2024 question must not get a 2025
+ * answer), filing statuses and negations. The embedding is lexical, so two long questions that
+ * differ in one such word still score close to 1; the key terms catch exactly those. Entries
+ * expire after the TTL and the least recently used entry is evicted once the cache is full.
+ */
+@Service
+public class SemanticAnswerCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SemanticAnswerCache.class);
+    private static final int TABLES = 16;
+    private static final int BITS_PER_TABLE = 8;
+    private static final long HYPERPLANE_SEED = 0x5eed_2025L;
+    /** Words that change the answer while barely moving the embedding; compared in stemmed form. */
+    private static final Set<String> KEY_WORDS = Set.of(
+            "single", "married", "jointly", "joint", "separately", "separate", "head", "household",
+            "widow", "widower", "dependent", "federal", "state", "not", "no", "without", "before", "after");
+
+    private record Entry(String question, float[] embedding, Set<String> keyTerms, int[] bucketKeys,
+                         String answer, Instant storedAt) {
+    }
+
+    private final HashingTextEmbedder embedder;
+    private final boolean enabled;
+    private final double threshold;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final float[][] hyperplanes;
+    private final List<Map<Integer, List<Entry>>> tables = new ArrayList<>(TABLES);
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long lookups;
+    private long hits;
+    private long evictions;
+
+    public SemanticAnswerCache(
+            HashingTextEmbedder embedder,
+            @Value("${openai.semantic-cache.enabled:true}") boolean enabled,
+            @Value("${openai.semantic-cache.similarity-threshold:0.9}") double threshold,
+            @Value("${openai.semantic-cache.ttl:PT12H}") Duration ttl,
+            @Value("${openai.semantic-cache.max-entries:2000}") int maxEntries
+    ) {
+        this.embedder = embedder;
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.ttl = ttl;
+        this.maxEntries = Math.max(1, maxEntries);
+        Random random = new Random(HYPERPLANE_SEED);
+        this.hyperplanes = new float[TABLES * BITS_PER_TABLE][embedder.dimensions()];
+        for (float[] plane : hyperplanes) {
+            for (int i = 0; i < plane.length; i++) {
+                plane[i] = (float) random.nextGaussian();
+            }
+        }
+        for (int i = 0; i < TABLES; i++) {
+            tables.add(new HashMap<>());
+        }
+    }
+
+    public Optional<String> find(String question) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        float[] embedding = embedder.embed(question);
+        Set<String> keyTerms = keyTerms(question);
+        int[] keys = bucketKeys(embedding);
+        synchronized (this) {
+            lookups++;
+            Entry best = null;
+            double bestScore = threshold;
+            List<Entry> expired = new ArrayList<>();
+            for (int table = 0; table < TABLES; table++) {
+                List<Entry> bucket = tables.get(table).get(keys[table]);
+                if (bucket == null) {
+                    continue;
+                }
+                for (Entry candidate : bucket) {
+                    if (isExpired(candidate)) {
+                        expired.add(candidate);
+                        continue;
+                    }
+                    double score = HashingTextEmbedder.cosine(embedding, candidate.embedding());
+                    if (score >= bestScore && candidate.keyTerms().equals(keyTerms)) {
+                        best = candidate;
+                        bestScore = score;
+                    }
+                }
+            }
+            expired.forEach(this::remove);
+            if (best == null) {
+                return Optional.empty();
+            }
+            hits++;
+            entries.get(best.question());
+            log.info("Semantic cache hit ({}) for '{}': cached question '{}'",
+                    String.format("%.3f", bestScore), question, best.question());
+            return Optional.of(best.answer());
+        }
+    }
+
+    public void put(String question, String answer) {
+        if (!enabled || answer == null || answer.isBlank()) {
+            return;
+        }
+        float[] embedding = embedder.embed(question);
+        Entry entry = new Entry(TaxRelevanceGate.normalize(question), embedding, keyTerms(question),
+                bucketKeys(embedding), answer, Instant.now());
+        synchronized (this) {
+            Entry previous = entries.get(entry.question());
+            if (previous != null) {
+                remove(previous);
+            }
+            entries.put(entry.question(), entry);
+            for (int table = 0; table < TABLES; table++) {
+                tables.get(table).computeIfAbsent(entry.bucketKeys()[table], k -> new ArrayList<>(1)).add(entry);
+            }
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                removeFromTables(evicted);
+                evictions++;
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("lookups", lookups);
+        stats.put("hits", hits);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hits / lookups);
+        stats.put("entries", entries.size());
+        stats.put("evictions", evictions);
+        return stats;
+    }
+
+    private boolean isExpired(Entry entry) {
+        return entry.storedAt().plus(ttl).isBefore(Instant.now());
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.question(), entry);
+        removeFromTables(entry);
+    }
+
+    private void removeFromTables(Entry entry) {
+        for (int table = 0; table < TABLES; table++) {
+            List<Entry> bucket = tables.get(table).get(entry.bucketKeys()[table]);
+            if (bucket != null) {
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    tables.get(table).remove(entry.bucketKeys()[table]);
+                }
+            }
+        }
+    }
+
+    private int[] bucketKeys(float[] embedding) {
+        int[] keys = new int[TABLES];
+        for (int table = 0; table < TABLES; table++) {
+            int key = 0;
+            for (int bit = 0; bit < BITS_PER_TABLE; bit++) {
+                float[] plane = hyperplanes[table * BITS_PER_TABLE + bit];
+                if (dot(embedding, plane) >= 0) {
+                    key |= 1 << bit;
+                }
+            }
+            keys[table] = key;
+        }
+        return keys;
+    }
+
+    /** Numbers, words containing digits such as "w2" or "q3", and {@link #KEY_WORDS}. */
+    static Set<String> keyTerms(String question) {
+        Set<String> terms = new TreeSet<>();
+        for (String word : HashingTextEmbedder.words(question)) {
+            if (KEY_WORDS.contains(word) || word.chars().anyMatch(Character::isDigit)) {
+                terms.add(word);
+            }
+        }
+        return terms;
+    }
+
+    private static double dot(float[] vector, float[] plane) {
+        double dot = 0;
+        for (int i = 0; i < vector.length; i++) {
+            dot += vector[i] * plane[i];
+        }
+        return dot;
+    }
+}
@@ -1,44 +1,232 @@
 package com.mohbility.springai.service;
 
 import com.mohbility.springai.model.TaxDocumentResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Session-scoped store for extracted documents, export state and the chat conversations that
+ * belong to them. Sessions are evicted after sitting idle and, least recently used first, once
+ * the session cap is reached. Eviction only frees the in-memory copy of the session's chat
+ * memory: the stored conversations outlive the session until the chat memory retention purges
+ * them. Clearing a session deletes them.
+ */
 @Service
 public class TaxDocumentCacheService {
 
-    private final Map<String, List<TaxDocumentResult>> cache = new ConcurrentHashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(TaxDocumentCacheService.class);
 
-    public void cache(TaxDocumentResult result) {
+    private final CompactingChatMemory chatMemory;
+    private final int maxSessions;
+    private final Duration idleTimeout;
+    private final int perceptualDistance;
+    private final Map<String, SessionState> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+    public TaxDocumentCacheService(
+            CompactingChatMemory chatMemory,
+            @Value("${openai.sessions.max-sessions:500}") int maxSessions,
+            @Value("${openai.sessions.idle-timeout:PT2H}") Duration idleTimeout,
+            @Value("${openai.dedup.perceptual-distance:16}") int perceptualDistance
+    ) {
+        this.chatMemory = chatMemory;
+        this.maxSessions = maxSessions;
+        this.idleTimeout = idleTimeout;
+        this.perceptualDistance = perceptualDistance;
+    }
+
+    /**
+     * Chat memory key for a conversation inside a session, so two sessions discussing the same
+     * recipient never share history.
+     */
+    public static String conversationId(String sessionId, String conversationName) {
+        return sessionId + ":" + conversationName;
+    }
+
+    public void cache(String sessionId, TaxDocumentResult result) {
+        if (result == null || result.getRecipient_name() == null) {
+            return;
+        }
+        SessionState state = session(sessionId);
+        synchronized (state) {
+            state.recipients.computeIfAbsent(result.getRecipient_name(), RecipientAggregate::new).add(result);
+        }
+    }
+
+    /**
+     * Caches a result that was extracted against {@code documentIndex}. Dropped when the session
+     * has been cleared since, so a job started before a newer upload cannot add to its documents.
+     */
+    public void cache(String sessionId, DocumentIndex documentIndex, TaxDocumentResult result) {
         if (result == null || result.getRecipient_name() == null) {
             return;
         }
-        cache.computeIfAbsent(result.getRecipient_name(), k -> Collections.synchronizedList(new ArrayList<>()))
-                .add(result);
+        SessionState state = session(sessionId);
+        synchronized (state) {
+            if (state.documentIndex != documentIndex) {
+                log.info("Session {} was cleared, dropping a result of an earlier extraction", sessionId);
+                return;
+            }
+            state.recipients.computeIfAbsent(result.getRecipient_name(), RecipientAggregate::new).add(result);
+        }
+    }
+
+    /**
+     * Duplicate index for the session's current document set; replaced whenever the session is cleared.
+     */
+    public DocumentIndex documentIndex(String sessionId) {
+        SessionState state = session(sessionId);
+        synchronized (state) {
+            if (state.documentIndex == null) {
+                state.documentIndex = new DocumentIndex(sessionId, perceptualDistance);
+            }
+            return state.documentIndex;
+        }
+    }
+
+    public List<TaxDocumentResult> get(String sessionId, String recipientName) {
+        SessionState state = session(sessionId);
+        synchronized (state) {
+            RecipientAggregate aggregate = state.recipients.get(recipientName);
+            return aggregate != null ? aggregate.getDocuments() : Collections.emptyList();
+        }
+    }
+
+    public RecipientAggregate getAggregate(String sessionId, String recipientName) {
+        SessionState state = session(sessionId);
+        synchronized (state) {
+            return state.recipients.get(recipientName);
+        }
+    }
+
+    public boolean exists(String sessionId, String recipientName) {
+        SessionState state = session(sessionId);
+        synchronized (state) {
+            return state.recipients.containsKey(recipientName);
+        }
     }
 
-    public List<TaxDocumentResult> get(String recipientName) {
-        return cache.getOrDefault(recipientName, Collections.emptyList());
+    public String getFirstRecipientName(String sessionId) {
+        SessionState state = session(sessionId);
+        synchronized (state) {
+            return state.recipients.keySet().stream().findFirst().orElse(null);
+        }
+    }
+
+    public void setExportDocuments(String sessionId, List<TaxDocumentResult> documents) {
+        SessionState state = session(sessionId);
+        synchronized (state) {
+            state.exportDocuments = List.copyOf(documents);
+        }
+    }
+
+    /**
+     * Same as {@link #setExportDocuments(String, List)}, unless the session has been cleared since
+     * {@code documentIndex} was handed out.
+     */
+    public void setExportDocuments(String sessionId, DocumentIndex documentIndex, List<TaxDocumentResult> documents) {
+        SessionState state = session(sessionId);
+        synchronized (state) {
+            if (state.documentIndex == documentIndex) {
+                state.exportDocuments = List.copyOf(documents);
+            }
+        }
+    }
+
+    public List<TaxDocumentResult> getExportDocuments(String sessionId) {
+        SessionState state = session(sessionId);
+        synchronized (state) {
+            return state.exportDocuments;
+        }
+    }
+
+    /**
+     * Drops the session's documents, export state and chat histories.
+     */
+    public void clear(String sessionId) {
+        SessionState state = session(sessionId);
+        synchronized (state) {
+            clearConversations(sessionId, state);
+            state.recipients.clear();
+            state.exportDocuments = List.of();
+            state.documentIndex = null;
+        }
+    }
+
+    public void clearByRecipient(String sessionId, String recipientName) {
+        SessionState state = session(sessionId);
+        synchronized (state) {
+            state.recipients.remove(recipientName);
+            chatMemory.clear(conversationId(sessionId, recipientName));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${openai.sessions.sweep-interval:PT1M}")
+    public void evictIdleSessions() {
+        Instant cutoff = Instant.now().minus(idleTimeout);
+        List<Map.Entry<String, SessionState>> evicted = new ArrayList<>();
+        synchronized (sessions) {
+            Iterator<Map.Entry<String, SessionState>> it = sessions.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, SessionState> entry = it.next();
+                if (entry.getValue().lastAccess.isBefore(cutoff)) {
+                    evicted.add(entry);
+                    it.remove();
+                }
+            }
+        }
+        evicted.forEach(entry -> release(entry.getKey(), entry.getValue()));
+        if (!evicted.isEmpty()) {
+            log.info("Evicted {} idle session(s)", evicted.size());
+        }
     }
 
-    public boolean exists(String recipientName) {
-        return cache.containsKey(recipientName);
+    private SessionState session(String sessionId) {
+        SessionState state;
+        Map.Entry<String, SessionState> overflow = null;
+        synchronized (sessions) {
+            state = sessions.computeIfAbsent(sessionId, k -> new SessionState());
+            state.lastAccess = Instant.now();
+            if (sessions.size() > maxSessions) {
+                Iterator<Map.Entry<String, SessionState>> eldest = sessions.entrySet().iterator();
+                overflow = eldest.next();
+                eldest.remove();
+            }
+        }
+        if (overflow != null) {
+            log.info("Session cap of {} reached, evicting least recently used session", maxSessions);
+            release(overflow.getKey(), overflow.getValue());
+        }
+        return state;
     }
 
-    public void clear() {
-        cache.clear();
+    private void release(String sessionId, SessionState state) {
+        synchronized (state) {
+            state.recipients.keySet().forEach(recipient -> chatMemory.release(conversationId(sessionId, recipient)));
+            chatMemory.release(conversationId(sessionId, GeneralChatService.CONVERSATION_NAME));
+        }
     }
 
-    public void clearByRecipient(String recipientName) {
-        cache.remove(recipientName);
+    private void clearConversations(String sessionId, SessionState state) {
+        state.recipients.keySet().forEach(recipient -> chatMemory.clear(conversationId(sessionId, recipient)));
+        chatMemory.clear(conversationId(sessionId, GeneralChatService.CONVERSATION_NAME));
     }
-    
-    public String getFirstRecipientName() {
-        return cache.keySet().stream().findFirst().orElse(null);
+
+    private static class SessionState {
+        private final Map<String, RecipientAggregate> recipients = new LinkedHashMap<>();
+        private List<TaxDocumentResult> exportDocuments = List.of();
+        private DocumentIndex documentIndex;
+        private volatile Instant lastAccess = Instant.now();
     }
 }
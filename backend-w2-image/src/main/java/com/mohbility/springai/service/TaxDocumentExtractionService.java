@@ -1,59 +1,128 @@
 package com.mohbility.springai.service;
 
 import com.mohbility.springai.exception.TaxDocumentException;
+import com.mohbility.springai.model.ExtractionOutcome;
 import com.mohbility.springai.model.TaxDocumentResult;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.ImageType;
-import org.apache.pdfbox.rendering.PDFRenderer;
+import com.mohbility.springai.service.DocumentDecoder.DecodedDocument;
+import com.mohbility.springai.service.DocumentDecoder.DecodedPage;
+import com.mohbility.springai.service.ImagePreprocessor.PreparedImage;
+import com.mohbility.springai.service.PacketSegmenter.FormPages;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ResponseEntity;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
-import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 @Service
 public class TaxDocumentExtractionService {
 
     private static final Logger log = LoggerFactory.getLogger(TaxDocumentExtractionService.class);
-    private static final int PDF_DPI = 300;
-    private static final String DEFAULT_MIME_TYPE = "image/jpeg";
+    private static final String DUPLICATE_ERROR = "Duplicate of a document already uploaded";
 
     private final ChatClient chatClient;
     private final String extractionPrompt;
+    private final String textLayerPrompt;
+    private final boolean textLayerEnabled;
+    private final int textLayerMinChars;
+    private final String promptVersion;
+    private final ExtractionResultCache extractionResultCache;
+    private final DocumentDecoder documentDecoder;
+    private final PreviewStore previewStore;
+    private final PacketSegmenter packetSegmenter;
+    private final PromptCacheMetrics promptCacheMetrics;
+    private final ExecutorService formExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore formPermits;
+    private final Map<String, CompletableFuture<List<TaxDocumentResult>>> inFlight = new ConcurrentHashMap<>();
 
     public TaxDocumentExtractionService(
-            ChatClient.Builder builder,
-            @Value("${openai.tax-document-prompt-file}") Resource extractionPromptResource
+            OpenAiClientFactory clientFactory,
+            @Value("${openai.tax-document-prompt-file}") Resource extractionPromptResource,
+            @Value("${openai.text-layer-prompt-file}") Resource textLayerPromptResource,
+            @Value("${openai.text-layer.enabled:true}") boolean textLayerEnabled,
+            @Value("${openai.text-layer.min-chars:200}") int textLayerMinChars,
+            ExtractionResultCache extractionResultCache,
+            DocumentDecoder documentDecoder,
+            ImagePreprocessor imagePreprocessor,
+            PreviewStore previewStore,
+            PacketSegmenter packetSegmenter,
+            PagePreClassifier pagePreClassifier,
+            PromptCacheMetrics promptCacheMetrics,
+            @Value("${openai.extraction.max-concurrent-forms:3}") int maxConcurrentForms
     ) throws IOException {
-        this.chatClient = builder.build();
+        this.chatClient = clientFactory.builder(OpenAiClientFactory.CallType.EXTRACTION).build();
         this.extractionPrompt = extractionPromptResource.getContentAsString(StandardCharsets.UTF_8);
+        this.textLayerPrompt = textLayerPromptResource.getContentAsString(StandardCharsets.UTF_8);
+        this.textLayerEnabled = textLayerEnabled;
+        this.textLayerMinChars = textLayerMinChars;
+        this.promptVersion = ExtractionResultCache.sha256(
+                extractionPrompt + packetSegmenter.promptFingerprint() + imagePreprocessor.settingsFingerprint()
+                        + pagePreClassifier.settingsFingerprint()
+                        + (textLayerEnabled ? textLayerPrompt + textLayerMinChars : "")).substring(0, 12);
+        this.extractionResultCache = extractionResultCache;
+        this.documentDecoder = documentDecoder;
+        this.previewStore = previewStore;
+        this.packetSegmenter = packetSegmenter;
+        this.promptCacheMetrics = promptCacheMetrics;
+        this.formPermits = new Semaphore(Math.max(1, maxConcurrentForms), true);
     }
 
-    public TaxDocumentResult extractFromFile(MultipartFile file) {
+    /**
+     * Extracts every form in a single upload. The returned outcome carries the content digest as its
+     * document id, which also keys the preview thumbnail in {@link PreviewStore}. A file already
+     * uploaded to {@code index} is rejected before the cache lookup, and forms already present in
+     * it are left out of the outcome.
+     */
+    public ExtractionOutcome extractFromFile(MultipartFile file, DocumentIndex index) {
         validateFile(file);
         
         try {
-            byte[] fileBytes = file.getBytes();
-            log.info("Extracting tax document from file: {}", file.getOriginalFilename());
-
-            TaxDocumentResult result = isPdf(file) 
-                    ? extractFromPdf(fileBytes) 
-                    : extractFromImage(fileBytes, file.getContentType());
-            
-            log.info("Successfully extracted {} document", result.getDocument_type());
-            return result;
+            String documentId;
+            try (InputStream in = file.getInputStream()) {
+                documentId = ExtractionResultCache.sha256(in);
+            }
+            if (!index.claimDocument(documentId)) {
+                log.info("Skipping {}: the same file was already uploaded in this session", file.getOriginalFilename());
+                return ExtractionOutcome.failure(file.getOriginalFilename(), DUPLICATE_ERROR);
+            }
+            try {
+                String cacheKey = extractionResultCache.keyFor(documentId, promptVersion);
+                Optional<List<TaxDocumentResult>> cached = extractionResultCache.get(cacheKey);
+                List<TaxDocumentResult> results;
+                if (cached.isPresent()) {
+                    log.info("Extraction cache hit for file: {}", file.getOriginalFilename());
+                    if (!previewStore.contains(documentId)) {
+                        previewStore.put(documentId, documentDecoder.decodeThumbnail(file));
+                    }
+                    results = cached.get();
+                } else {
+                    results = extractOnce(cacheKey, documentId, file, index);
+                }
+                return deduplicate(file.getOriginalFilename(), documentId, results, index);
+            } catch (Exception e) {
+                index.releaseDocument(documentId);
+                throw e;
+            }
         } catch (IOException e) {
             log.error("IO error reading file: {}", file.getOriginalFilename(), e);
             throw new TaxDocumentException("Failed to read file: " + e.getMessage(), e);
@@ -63,6 +132,54 @@ public class TaxDocumentExtractionService {
         }
     }
 
+    /**
+     * Runs the extraction for a cache key at most once at a time: concurrent uploads of the same
+     * bytes, from this batch or any other session, wait for the first one and share its results.
+     */
+    private List<TaxDocumentResult> extractOnce(String cacheKey, String documentId, MultipartFile file, DocumentIndex index) throws Exception {
+        CompletableFuture<List<TaxDocumentResult>> mine = new CompletableFuture<>();
+        CompletableFuture<List<TaxDocumentResult>> running = inFlight.putIfAbsent(cacheKey, mine);
+        if (running != null) {
+            log.info("Waiting for in-flight extraction of identical file: {}", file.getOriginalFilename());
+            try {
+                return running.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+
+        try {
+            log.info("Extracting tax document from file: {}", file.getOriginalFilename());
+
+            DecodedDocument decoded = documentDecoder.decode(file);
+            previewStore.put(documentId, decoded.thumbnail());
+            List<FormPages> forms = packetSegmenter.segment(decoded, index.sessionId());
+            List<TaxDocumentResult> results = extractForms(forms, file.getSize(), index);
+
+            extractionResultCache.put(cacheKey, results);
+            log.info("Successfully extracted {} document(s): {}", results.size(),
+                    results.stream().map(TaxDocumentResult::getDocument_type).toList());
+            mine.complete(results);
+            return results;
+        } catch (Exception e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    private ExtractionOutcome deduplicate(String fileName, String documentId, List<TaxDocumentResult> results, DocumentIndex index) {
+        List<TaxDocumentResult> accepted = results.stream().filter(index::accept).toList();
+        if (accepted.size() < results.size()) {
+            log.info("Skipped {} duplicate document(s) in {}", results.size() - accepted.size(), fileName);
+        }
+        if (accepted.isEmpty()) {
+            return ExtractionOutcome.failure(fileName, DUPLICATE_ERROR);
+        }
+        return ExtractionOutcome.success(fileName, documentId, accepted);
+    }
+
     private void validateFile(MultipartFile file) {
         if (file == null || file.isEmpty()) {
             throw new TaxDocumentException("File is empty or null");
@@ -72,47 +189,146 @@ public class TaxDocumentExtractionService {
         }
     }
 
-    private TaxDocumentResult extractFromPdf(byte[] pdfBytes) throws Exception {
-        List<byte[]> pages = convertPdfToImages(pdfBytes);
-        return chatClient.prompt()
-                .user(u -> {
-                    u.text(extractionPrompt);
-                    pages.forEach(page -> u.media(MimeTypeUtils.IMAGE_PNG, new ByteArrayResource(page)));
-                })
-                .call()
-                .entity(TaxDocumentResult.class);
+    /**
+     * Extracts each form on its own virtual thread. A semaphore bounds the calls in flight for
+     * one packet, and results keep the page order of the forms.
+     */
+    private List<TaxDocumentResult> extractForms(List<FormPages> forms, long fileSize, DocumentIndex index) throws Exception {
+        if (forms.size() == 1) {
+            return List.of(extractForm(forms.get(0), fileSize, index));
+        }
+
+        List<Future<TaxDocumentResult>> futures = new ArrayList<>(forms.size());
+        for (FormPages form : forms) {
+            futures.add(formExecutor.submit(() -> {
+                formPermits.acquire();
+                try {
+                    return extractForm(form, fileSize, index);
+                } finally {
+                    formPermits.release();
+                }
+            }));
+        }
+
+        List<TaxDocumentResult> results = new ArrayList<>(forms.size());
+        try {
+            for (Future<TaxDocumentResult> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+        return results;
     }
 
-    private TaxDocumentResult extractFromImage(byte[] imageBytes, String contentType) {
-        String mimeType = contentType != null ? contentType : DEFAULT_MIME_TYPE;
-        return chatClient.prompt()
-                .user(u -> u.text(extractionPrompt)
-                        .media(MimeTypeUtils.parseMimeType(mimeType), new ByteArrayResource(imageBytes)))
-                .call()
-                .entity(TaxDocumentResult.class);
+    /**
+     * Flags a form that looks like one already extracted in this session, for example the same
+     * W-2 uploaded both as a PDF page and as a saved image. The form is still extracted: W-2s
+     * from one payroll template look alike too, so only the extracted values settle whether it
+     * is a duplicate.
+     */
+    private TaxDocumentResult extractForm(FormPages form, long fileSize, DocumentIndex index) throws IOException {
+        long[] hash = form.pages().get(0).hash();
+        index.findSimilarForm(hash).ifPresent(similar ->
+                log.info("Form looks like a {} already extracted in this session, possible duplicate",
+                        similar.getDocument_type()));
+        TaxDocumentResult result = extractForm(form, fileSize, index.sessionId());
+        index.recordForm(hash, result);
+        return result;
     }
 
-    private boolean isPdf(MultipartFile file) {
-        String type = file.getContentType();
-        String name = file.getOriginalFilename();
-        return "application/pdf".equalsIgnoreCase(type) ||
-                (name != null && name.toLowerCase().endsWith(".pdf"));
+    /**
+     * Digitally generated PDFs carry their box values in the text layer, so a compact text prompt
+     * replaces the page images. Scans, and text extractions missing the core fields, go through
+     * the vision path; only then are the page images of a text-layer PDF encoded.
+     */
+    private TaxDocumentResult extractForm(FormPages form, long fileSize, String sessionId) throws IOException {
+        String textLayer = textLayer(form);
+        if (textLayer != null) {
+            try {
+                TaxDocumentResult result = extractFromText(textLayer, sessionId);
+                if (isComplete(result)) {
+                    log.info("Extracted {} from the PDF text layer ({} chars)", result.getDocument_type(), textLayer.length());
+                    return result;
+                }
+                log.info("Text-layer extraction was incomplete, falling back to page images");
+            } catch (Exception e) {
+                log.warn("Text-layer extraction failed, falling back to page images: {}", e.getMessage());
+            }
+        }
+        return extract(form.images(), fileSize, sessionId);
     }
 
-    private List<byte[]> convertPdfToImages(byte[] pdfBytes) throws Exception {
-        List<byte[]> images = new ArrayList<>();
-        try (PDDocument doc = PDDocument.load(pdfBytes)) {
-            PDFRenderer renderer = new PDFRenderer(doc);
-            int pageCount = doc.getNumberOfPages();
-            log.debug("Converting {} PDF pages to images", pageCount);
-            
-            for (int i = 0; i < pageCount; i++) {
-                BufferedImage image = renderer.renderImageWithDPI(i, PDF_DPI, ImageType.RGB);
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                ImageIO.write(image, "png", out);
-                images.add(out.toByteArray());
+    private String textLayer(FormPages form) {
+        if (!textLayerEnabled) {
+            return null;
+        }
+        List<String> texts = form.pages().stream().map(DecodedPage::text).toList();
+        int length = 0;
+        for (String text : texts) {
+            if (!PagePreClassifier.hasFormValues(text)) {
+                return null;
             }
+            length += text.length();
+        }
+        if (length < textLayerMinChars) {
+            return null;
+        }
+        // Braces would be read as template placeholders
+        return String.join("\n--- next page ---\n", texts).replace('{', '(').replace('}', ')');
+    }
+
+    private TaxDocumentResult extractFromText(String textLayer, String sessionId) {
+        return entity("extraction-text", chatClient.prompt()
+                .system(extractionPrompt + "\n\n" + textLayerPrompt)
+                .user(textLayer)
+                .advisors(a -> a.param(ModelCallScheduler.SESSION_KEY, sessionId))
+                .call()
+                .responseEntity(TaxDocumentResult.class));
+    }
+
+    private static boolean isComplete(TaxDocumentResult result) {
+        if (result == null || result.getPayer_name() == null || result.getPayer_name().isBlank()) {
+            return false;
+        }
+        if ("W2".equals(result.getDocument_type())) {
+            return result.getWages_box1() != null;
+        }
+        if ("1099-NEC".equals(result.getDocument_type())) {
+            return result.getNonemployee_compensation_box1() != null;
         }
-        return images;
+        return false;
+    }
+
+    private TaxDocumentResult extract(List<PreparedImage> pages, long fileSize, String sessionId) {
+        long payloadBytes = pages.stream().mapToLong(page -> page.bytes().length).sum();
+        // PDF pages are measured against their share of the PDF, so text-heavy PDFs that render larger save nothing
+        long bytesSaved = pages.stream().mapToLong(PreparedImage::bytesSaved).sum();
+        log.info("Sending {} page image(s), {} bytes (upload was {} bytes, {} bytes saved by preprocessing)",
+                pages.size(), payloadBytes, fileSize, bytesSaved);
+        return entity("extraction", chatClient.prompt()
+                .system(extractionPrompt)
+                .user(u -> {
+                    u.text("Extract the tax form in the attached page image(s).");
+                    pages.forEach(page -> u.media(page.mimeType(), new ByteArrayResource(page.bytes())));
+                })
+                .advisors(a -> a.param(ModelCallScheduler.SESSION_KEY, sessionId))
+                .call()
+                .responseEntity(TaxDocumentResult.class));
+    }
+
+    private <T> T entity(String prompt, ResponseEntity<ChatResponse, T> response) {
+        promptCacheMetrics.record(prompt, response.response());
+        return response.entity();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        formExecutor.shutdownNow();
     }
 }
@@ -1,12 +1,14 @@
 package com.mohbility.springai.service;
 
+import com.mohbility.springai.model.ExtractionOutcome;
 import com.mohbility.springai.model.TaxDocumentResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
 
 @Service
@@ -17,86 +19,152 @@ public class TaxDocumentService {
     private final TaxDocumentChatService taxDocumentChatService;
     private final GeneralChatService generalChatService;
     private final TaxDocumentCacheService taxDocumentCacheService;
+    private final BatchExtractionService batchExtractionService;
+    private final ExtractionJobService extractionJobService;
 
     public TaxDocumentService(
             TaxDocumentExtractionService taxDocumentExtractionService,
             TaxDocumentChatService taxDocumentChatService,
             GeneralChatService generalChatService,
-            TaxDocumentCacheService taxDocumentCacheService
+            TaxDocumentCacheService taxDocumentCacheService,
+            BatchExtractionService batchExtractionService,
+            ExtractionJobService extractionJobService
     ) {
         this.taxDocumentExtractionService = taxDocumentExtractionService;
         this.taxDocumentChatService = taxDocumentChatService;
         this.generalChatService = generalChatService;
         this.taxDocumentCacheService = taxDocumentCacheService;
+        this.batchExtractionService = batchExtractionService;
+        this.extractionJobService = extractionJobService;
     }
 
-    public TaxDocumentResult extractTaxDocumentFromFile(MultipartFile file) throws Exception {
-        clearAllCache();
-        TaxDocumentResult result = taxDocumentExtractionService.extractFromFile(file);
-        taxDocumentCacheService.cache(result);
-        return result;
+    public ExtractionOutcome extractTaxDocumentFromFile(String sessionId, MultipartFile file) {
+        taxDocumentCacheService.clear(sessionId);
+        ExtractionOutcome outcome = taxDocumentExtractionService.extractFromFile(file, taxDocumentCacheService.documentIndex(sessionId));
+        outcome.getResults().forEach(result -> taxDocumentCacheService.cache(sessionId, result));
+        taxDocumentCacheService.setExportDocuments(sessionId, outcome.getResults());
+        return outcome;
     }
 
-    public List<TaxDocumentResult> extractTaxDocumentsFromFiles(List<MultipartFile> files) throws Exception {
-        clearAllCache();
-        List<TaxDocumentResult> results = new ArrayList<>();
-        for (MultipartFile file : files) {
-            TaxDocumentResult result = taxDocumentExtractionService.extractFromFile(file);
-            taxDocumentCacheService.cache(result);
-            results.add(result);
+    public List<ExtractionOutcome> extractTaxDocumentsFromFiles(String sessionId, List<MultipartFile> files) {
+        taxDocumentCacheService.clear(sessionId);
+        List<ExtractionOutcome> outcomes = batchExtractionService.extractAll(files, taxDocumentCacheService.documentIndex(sessionId));
+        List<TaxDocumentResult> results = successfulResults(outcomes);
+        results.forEach(result -> taxDocumentCacheService.cache(sessionId, result));
+        if (!results.isEmpty()) {
+            taxDocumentCacheService.setExportDocuments(sessionId, results);
         }
-        return results;
+        return outcomes;
     }
 
-    public String chat(String recipientIdentifier, String message) {
+    /**
+     * Queues a batch extraction and returns immediately. Results are cached in the session as
+     * each document finishes and become the session's export set once the job completes. If the
+     * session is cleared by a later upload meanwhile, the job's results stay out of it.
+     */
+    public ExtractionJob submitExtractionJob(String sessionId, List<MultipartFile> files) throws IOException {
+        taxDocumentCacheService.clear(sessionId);
+        DocumentIndex documentIndex = taxDocumentCacheService.documentIndex(sessionId);
+        return extractionJobService.submit(files, documentIndex, new ExtractionJob.Listener() {
+            @Override
+            public void onDocument(ExtractionJob job, int index, ExtractionOutcome outcome) {
+                outcome.getResults().forEach(result -> taxDocumentCacheService.cache(sessionId, documentIndex, result));
+            }
+
+            @Override
+            public void onComplete(ExtractionJob job) {
+                List<TaxDocumentResult> results = successfulResults(job.getOutcomes());
+                if (!results.isEmpty()) {
+                    taxDocumentCacheService.setExportDocuments(sessionId, documentIndex, results);
+                }
+            }
+        });
+    }
+
+    public ExtractionJob getExtractionJob(String sessionId, String jobId) {
+        return extractionJobService.get(sessionId, jobId);
+    }
+
+    public List<TaxDocumentResult> getExportDocuments(String sessionId) {
+        return taxDocumentCacheService.getExportDocuments(sessionId);
+    }
+
+    public String chat(String sessionId, String recipientIdentifier, String message) {
         log.info("TaxDocumentService.chat called with recipientIdentifier: {}", recipientIdentifier);
         
-        if (recipientIdentifier == null || "undefined".equals(recipientIdentifier)) {
-            recipientIdentifier = taxDocumentCacheService.getFirstRecipientName();
-            log.info("recipientIdentifier was null, using first cached recipient: {}", recipientIdentifier);
-            
-            if (recipientIdentifier == null) {
-                log.warn("No cached documents found");
-                return "Please upload tax documents first to start the conversation.";
-            }
+        String recipient = resolveRecipient(sessionId, recipientIdentifier);
+        if (recipient == null) {
+            log.warn("No cached documents found");
+            return "Please upload tax documents first to start the conversation.";
         }
         
-        List<TaxDocumentResult> documents = taxDocumentCacheService.get(recipientIdentifier);
-        log.info("Retrieved {} documents from cache for recipientIdentifier: {}", 
-                documents != null ? documents.size() : 0, recipientIdentifier);
-        return taxDocumentChatService.chat(recipientIdentifier, documents, message);
+        return taxDocumentChatService.chat(TaxDocumentCacheService.conversationId(sessionId, recipient),
+                taxDocumentCacheService.getAggregate(sessionId, recipient), message);
+    }
+
+    public Flux<String> chatStream(String sessionId, String recipientIdentifier, String message) {
+        String recipient = resolveRecipient(sessionId, recipientIdentifier);
+        if (recipient == null) {
+            return Flux.just("Please upload tax documents first to start the conversation.");
+        }
+        return taxDocumentChatService.chatStream(TaxDocumentCacheService.conversationId(sessionId, recipient),
+                taxDocumentCacheService.getAggregate(sessionId, recipient), message);
     }
 
-    public String generalChat(String message) {
-        return generalChatService.chat(message);
+    public String generalChat(String sessionId, String message) {
+        return generalChatService.chat(sessionId, message);
     }
 
-    public String generateSummary(String recipientIdentifier) {
+    public Flux<String> generalChatStream(String sessionId, String message) {
+        return generalChatService.chatStream(sessionId, message);
+    }
+
+    public String generateSummary(String sessionId, String recipientIdentifier) {
         log.info("TaxDocumentService.generateSummary called with recipientIdentifier: {}", recipientIdentifier);
         
-        if (recipientIdentifier == null || "undefined".equals(recipientIdentifier)) {
-            recipientIdentifier = taxDocumentCacheService.getFirstRecipientName();
-            log.info("recipientIdentifier was null for summary, using first cached recipient: {}", recipientIdentifier);
-            
-            if (recipientIdentifier == null) {
-                log.warn("No cached documents found for summary");
-                return "Please upload tax documents first.";
-            }
+        String recipient = resolveRecipient(sessionId, recipientIdentifier);
+        if (recipient == null) {
+            log.warn("No cached documents found for summary");
+            return "Please upload tax documents first.";
         }
         
-        List<TaxDocumentResult> documents = taxDocumentCacheService.get(recipientIdentifier);
-        log.info("Retrieved {} documents from cache for summary, recipientIdentifier: {}", 
-                documents != null ? documents.size() : 0, recipientIdentifier);
-        return taxDocumentChatService.generateSummary(recipientIdentifier, documents);
+        return taxDocumentChatService.generateSummary(TaxDocumentCacheService.conversationId(sessionId, recipient),
+                taxDocumentCacheService.getAggregate(sessionId, recipient));
+    }
+
+    public Flux<String> generateSummaryStream(String sessionId, String recipientIdentifier) {
+        String recipient = resolveRecipient(sessionId, recipientIdentifier);
+        if (recipient == null) {
+            return Flux.just("Please upload tax documents first.");
+        }
+        return taxDocumentChatService.generateSummaryStream(TaxDocumentCacheService.conversationId(sessionId, recipient),
+                taxDocumentCacheService.getAggregate(sessionId, recipient));
     }
 
-    public String generateGeneralChatSummary() {
-        return generalChatService.generateSummary();
+    public String generateGeneralChatSummary(String sessionId) {
+        return generalChatService.generateSummary(sessionId);
+    }
+
+    public Flux<String> generateGeneralChatSummaryStream(String sessionId) {
+        return generalChatService.generateSummaryStream(sessionId);
+    }
+
+    /**
+     * Falls back to the session's first recipient when the client did not name one.
+     */
+    private String resolveRecipient(String sessionId, String recipientIdentifier) {
+        if (recipientIdentifier == null || "undefined".equals(recipientIdentifier)) {
+            String first = taxDocumentCacheService.getFirstRecipientName(sessionId);
+            log.info("recipientIdentifier was not provided, using first cached recipient: {}", first);
+            return first;
+        }
+        return recipientIdentifier;
     }
 
-    private void clearAllCache() {
-        taxDocumentCacheService.clear();
-        taxDocumentChatService.clearHistory(null);
-        generalChatService.clearHistory();
+    private static List<TaxDocumentResult> successfulResults(List<ExtractionOutcome> outcomes) {
+        return outcomes.stream()
+                .filter(outcome -> outcome != null)
+                .flatMap(outcome -> outcome.getResults().stream())
+                .toList();
     }
 }
@@ -0,0 +1,121 @@
+package com.mohbility.springai.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * In-process first pass of the tax-relevance check. Questions are matched against a term lexicon
+ * loaded at startup, and a specific tax term settles the question as related. No lexicon can list
+ * every tax topic, so a question without a match is normally left to the validator model. It is
+ * rejected here only when it names a plainly off-topic subject ("capital of", "recipe") and
+ * carries no money or filing word at all; see tax_offtopic_terms.txt.
+ */
+@Service
+public class TaxRelevanceGate {
+
+    public enum Verdict {
+        RELATED,
+        /** Nothing to ask about, or an off-topic subject without any money or filing word. */
+        UNRELATED,
+        /** No tax term matched; the validator model decides. */
+        UNCERTAIN
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(TaxRelevanceGate.class);
+    private static final Pattern JOINED_HYPHEN = Pattern.compile("(?<=[a-z0-9])[-'](?=[a-z0-9])");
+    private static final Pattern NON_WORD = Pattern.compile("[^a-z0-9]+");
+
+    private final boolean enabled;
+    private final List<String> relatedTerms = new ArrayList<>();
+    private final List<String> offTopicTerms = new ArrayList<>();
+    private final List<String> moneyTerms = new ArrayList<>();
+
+    public TaxRelevanceGate(
+            @Value("${openai.relevance.enabled:true}") boolean enabled,
+            @Value("${openai.relevance.terms-file:classpath:tax_relevance_terms.txt}") Resource termsResource,
+            @Value("${openai.relevance.off-topic-terms-file:classpath:tax_offtopic_terms.txt}") Resource offTopicResource
+    ) throws IOException {
+        this.enabled = enabled;
+        for (String line : lines(termsResource)) {
+            relatedTerms.add(term(line));
+        }
+        for (String line : lines(offTopicResource)) {
+            if (line.startsWith("!")) {
+                moneyTerms.add(term(line.substring(1)));
+            } else {
+                offTopicTerms.add(term(line));
+            }
+        }
+        log.info("Loaded tax relevance lexicon: {} terms, {} off-topic terms, {} money terms",
+                relatedTerms.size(), offTopicTerms.size(), moneyTerms.size());
+    }
+
+    private static List<String> lines(Resource resource) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line : resource.getContentAsString(StandardCharsets.UTF_8).split("\n")) {
+            line = line.strip();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Whole terms are matched with a space on both sides, prefixes (a trailing *) only on the left.
+     */
+    private static String term(String line) {
+        boolean prefix = line.endsWith("*");
+        String term = normalize(prefix ? line.substring(0, line.length() - 1) : line);
+        return " " + term + (prefix ? "" : " ");
+    }
+
+    /**
+     * Lowercases the question and reduces it to space-separated words, so that spelling variants
+     * like "W-2" and "w2" or trailing punctuation map to the same text.
+     */
+    public static String normalize(String question) {
+        if (question == null) {
+            return "";
+        }
+        String text = JOINED_HYPHEN.matcher(question.toLowerCase(Locale.ROOT)).replaceAll("");
+        return NON_WORD.matcher(text).replaceAll(" ").strip();
+    }
+
+    public Verdict classify(String question) {
+        if (!enabled) {
+            return Verdict.UNCERTAIN;
+        }
+        String normalized = normalize(question);
+        if (normalized.isEmpty()) {
+            return Verdict.UNRELATED;
+        }
+        String text = " " + normalized + " ";
+        if (containsAny(text, relatedTerms)) {
+            return Verdict.RELATED;
+        }
+        if (containsAny(text, offTopicTerms) && !containsAny(text, moneyTerms)) {
+            return Verdict.UNRELATED;
+        }
+        return Verdict.UNCERTAIN;
+    }
+
+    private static boolean containsAny(String text, List<String> terms) {
+        for (String term : terms) {
+            if (text.contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,118 @@
+package com.mohbility.springai.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Ordered, immutable set of typed columns for one result type. Accessors are plain lambdas over
+ * the getters, so numeric columns are read as primitives and exporters never build intermediate
+ * per-row maps.
+ */
+public final class ColumnSchema<T> {
+
+    public enum Type { TEXT, NUMBER, INTEGER }
+
+    public static final class Column<T> {
+        private final String header;
+        private final Type type;
+        private final Function<T, String> textValue;
+        private final ToDoubleFunction<T> numberValue;
+        private final ToIntFunction<T> integerValue;
+
+        private Column(String header, Type type, Function<T, String> textValue,
+                       ToDoubleFunction<T> numberValue, ToIntFunction<T> integerValue) {
+            this.header = header;
+            this.type = type;
+            this.textValue = textValue;
+            this.numberValue = numberValue;
+            this.integerValue = integerValue;
+        }
+
+        public String header() {
+            return header;
+        }
+
+        public Type type() {
+            return type;
+        }
+
+        /**
+         * Value as written to text formats. Numeric columns are formatted; text may be null.
+         */
+        public String text(T row) {
+            return switch (type) {
+                case TEXT -> textValue.apply(row);
+                case NUMBER -> Double.toString(numberValue.applyAsDouble(row));
+                case INTEGER -> Integer.toString(integerValue.applyAsInt(row));
+            };
+        }
+
+        public double number(T row) {
+            return type == Type.INTEGER ? integerValue.applyAsInt(row) : numberValue.applyAsDouble(row);
+        }
+
+        public int integer(T row) {
+            return type == Type.INTEGER ? integerValue.applyAsInt(row) : (int) numberValue.applyAsDouble(row);
+        }
+    }
+
+    private final List<Column<T>> columns;
+
+    private ColumnSchema(List<Column<T>> columns) {
+        this.columns = List.copyOf(columns);
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    public List<Column<T>> columns() {
+        return columns;
+    }
+
+    public int size() {
+        return columns.size();
+    }
+
+    public Column<T> get(int index) {
+        return columns.get(index);
+    }
+
+    /** Null-safe unboxing for model fields declared as wrapper types: missing amounts export as zero. */
+    public static double orZero(Double value) {
+        return value != null ? value : 0.0;
+    }
+
+    public static int orZero(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    public static final class Builder<T> {
+        private final List<Column<T>> columns = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder<T> text(String header, Function<T, String> value) {
+            columns.add(new Column<>(header, Type.TEXT, value, null, null));
+            return this;
+        }
+
+        public Builder<T> number(String header, ToDoubleFunction<T> value) {
+            columns.add(new Column<>(header, Type.NUMBER, null, value, null));
+            return this;
+        }
+
+        public Builder<T> integer(String header, ToIntFunction<T> value) {
+            columns.add(new Column<>(header, Type.INTEGER, null, null, value));
+            return this;
+        }
+
+        public ColumnSchema<T> build() {
+            return new ColumnSchema<>(columns);
+        }
+    }
+}
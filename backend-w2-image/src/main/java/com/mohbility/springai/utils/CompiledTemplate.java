@@ -0,0 +1,48 @@
+package com.mohbility.springai.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Prompt template split into literal text and {placeholder} slots once, so rendering is a single
+ * pass into a pre-sized builder instead of a chain of String.replace calls.
+ * Placeholders without a value are kept verbatim.
+ */
+public class CompiledTemplate {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([a-z0-9_]+)}");
+
+    private final List<String> literals = new ArrayList<>();
+    private final List<String> placeholders = new ArrayList<>();
+    private final int literalLength;
+
+    public CompiledTemplate(String template) {
+        Matcher matcher = PLACEHOLDER.matcher(template);
+        int last = 0;
+        while (matcher.find()) {
+            literals.add(template.substring(last, matcher.start()));
+            placeholders.add(matcher.group(1));
+            last = matcher.end();
+        }
+        literals.add(template.substring(last));
+        this.literalLength = literals.stream().mapToInt(String::length).sum();
+    }
+
+    public String render(Map<String, String> values) {
+        StringBuilder out = new StringBuilder(literalLength + 256 * placeholders.size());
+        for (int i = 0; i < placeholders.size(); i++) {
+            out.append(literals.get(i));
+            String value = values.get(placeholders.get(i));
+            if (value != null) {
+                out.append(value);
+            } else {
+                out.append('{').append(placeholders.get(i)).append('}');
+            }
+        }
+        out.append(literals.get(literals.size() - 1));
+        return out.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package com.mohbility.springai.utils;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Streams any column schema to a single-sheet workbook. Numeric columns become numeric cells.
+ */
+public final class SchemaExcelWriter {
+    private static final int ROW_WINDOW = 100;
+    private static final int MAX_COLUMN_CHARS = 60;
+    private static final int NUMBER_COLUMN_CHARS = 12;
+
+    private SchemaExcelWriter() {
+    }
+
+    /**
+     * Rows are flushed to disk every {@value #ROW_WINDOW} rows, and column widths are estimated
+     * from character counts rather than measured with AWT fonts.
+     */
+    public static <T> void write(String sheetName, ColumnSchema<T> schema, List<T> rows, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        try {
+            Sheet sheet = workbook.createSheet(sheetName);
+            int rowNum = 0;
+            int[] widths = new int[schema.size()];
+
+            Row headerRow = sheet.createRow(rowNum++);
+            for (int i = 0; i < schema.size(); i++) {
+                String header = schema.get(i).header();
+                headerRow.createCell(i).setCellValue(header);
+                widths[i] = schema.get(i).type() == ColumnSchema.Type.TEXT
+                        ? header.length()
+                        : Math.max(header.length(), NUMBER_COLUMN_CHARS);
+            }
+
+            for (T value : rows) {
+                Row row = sheet.createRow(rowNum++);
+                for (int i = 0; i < schema.size(); i++) {
+                    ColumnSchema.Column<T> column = schema.get(i);
+                    switch (column.type()) {
+                        case TEXT -> {
+                            String text = column.text(value);
+                            row.createCell(i).setCellValue(text);
+                            if (text != null && text.length() > widths[i]) {
+                                widths[i] = text.length();
+                            }
+                        }
+                        case NUMBER -> row.createCell(i).setCellValue(column.number(value));
+                        case INTEGER -> row.createCell(i).setCellValue(column.integer(value));
+                    }
+                }
+            }
+
+            for (int i = 0; i < schema.size(); i++) {
+                sheet.setColumnWidth(i, (Math.min(widths[i], MAX_COLUMN_CHARS) + 2) * 256);
+            }
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+}
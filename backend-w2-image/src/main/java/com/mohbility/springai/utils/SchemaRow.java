@@ -0,0 +1,50 @@
+package com.mohbility.springai.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * One result viewed through a column schema. Serializes to the same flat JSON object of strings
+ * the table endpoints have always returned, written straight from the accessors.
+ */
+@JsonSerialize(using = SchemaRow.Serializer.class)
+public final class SchemaRow<T> {
+
+    private final ColumnSchema<T> schema;
+    private final T value;
+
+    public SchemaRow(ColumnSchema<T> schema, T value) {
+        this.schema = schema;
+        this.value = value;
+    }
+
+    public ColumnSchema<T> schema() {
+        return schema;
+    }
+
+    public T value() {
+        return value;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    static final class Serializer extends StdSerializer<SchemaRow> {
+
+        Serializer() {
+            super(SchemaRow.class);
+        }
+
+        @Override
+        public void serialize(SchemaRow row, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject();
+            for (Object column : row.schema.columns()) {
+                ColumnSchema.Column typed = (ColumnSchema.Column) column;
+                generator.writeStringField(typed.header(), typed.text(row.value));
+            }
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.mohbility.springai.utils;
+
+import com.mohbility.springai.model.TaxDocumentResult;
+
+import java.util.Map;
+
+import static com.mohbility.springai.utils.ColumnSchema.orZero;
+
+/**
+ * Column schemas for TaxDocumentResult. File exports write {@link #EXPORT}; the on-screen table
+ * uses the schema compiled for the document's type, showing only the boxes that form carries.
+ */
+public final class TaxDocumentColumns {
+
+    public static final ColumnSchema<TaxDocumentResult> EXPORT = ColumnSchema.<TaxDocumentResult>builder()
+            .text("Document Type", TaxDocumentResult::getDocument_type)
+            .text("Payer Name", TaxDocumentResult::getPayer_name)
+            .text("Payer EIN", TaxDocumentResult::getPayer_ein)
+            .text("Payer Address", TaxDocumentResult::getPayer_address)
+            .text("Recipient Name", TaxDocumentResult::getRecipient_name)
+            .text("Recipient Address", TaxDocumentResult::getRecipient_address)
+            .text("Recipient SSN Last4", TaxDocumentResult::getRecipient_ssn_last4)
+            .number("Wages (W-2 Box 1)", doc -> orZero(doc.getWages_box1()))
+            .number("Federal Tax Withheld (W-2 Box 2)", doc -> orZero(doc.getFederal_income_tax_withheld_box2()))
+            .number("Social Security Wages (W-2 Box 3)", doc -> orZero(doc.getSocial_security_wages_box3()))
+            .number("Medicare Wages (W-2 Box 5)", doc -> orZero(doc.getMedicare_wages_box5()))
+            .number("Nonemployee Compensation (1099-NEC Box 1)", doc -> orZero(doc.getNonemployee_compensation_box1()))
+            .number("Federal Tax Withheld (1099-NEC Box 4)", doc -> orZero(doc.getFederal_income_tax_withheld_box4()))
+            .text("State", doc -> doc.getState() != null ? doc.getState() : "")
+            .number("State Wages/Income", doc -> orZero(doc.getState_wages()))
+            .number("State Income Tax", doc -> orZero(doc.getState_income_tax()))
+            .integer("Tax Year", doc -> orZero(doc.getTax_year()))
+            .build();
+
+    private static final ColumnSchema<TaxDocumentResult> W2_TABLE = tableSchema("W2");
+    private static final ColumnSchema<TaxDocumentResult> NEC_TABLE = tableSchema("1099-NEC");
+    private static final ColumnSchema<TaxDocumentResult> OTHER_TABLE = tableSchema(null);
+    private static final Map<String, ColumnSchema<TaxDocumentResult>> TABLES = Map.of(
+            "W2", W2_TABLE,
+            "1099-NEC", NEC_TABLE
+    );
+
+    private TaxDocumentColumns() {
+    }
+
+    public static ColumnSchema<TaxDocumentResult> table(String documentType) {
+        return documentType != null ? TABLES.getOrDefault(documentType, OTHER_TABLE) : OTHER_TABLE;
+    }
+
+    public static SchemaRow<TaxDocumentResult> tableRow(TaxDocumentResult doc) {
+        return new SchemaRow<>(table(doc.getDocument_type()), doc);
+    }
+
+    private static ColumnSchema<TaxDocumentResult> tableSchema(String documentType) {
+        ColumnSchema.Builder<TaxDocumentResult> builder = ColumnSchema.<TaxDocumentResult>builder()
+                .text("Document Type", TaxDocumentResult::getDocument_type)
+                .text("Payer Name", TaxDocumentResult::getPayer_name)
+                .text("Payer EIN", TaxDocumentResult::getPayer_ein)
+                .text("Recipient Name", TaxDocumentResult::getRecipient_name)
+                .text("Recipient SSN Last4", TaxDocumentResult::getRecipient_ssn_last4);
+
+        if ("W2".equals(documentType)) {
+            builder.number("Wages", doc -> orZero(doc.getWages_box1()))
+                    .number("Federal Tax Withheld", doc -> orZero(doc.getFederal_income_tax_withheld_box2()))
+                    .number("Social Security Wages", doc -> orZero(doc.getSocial_security_wages_box3()))
+                    .number("Medicare Wages", doc -> orZero(doc.getMedicare_wages_box5()));
+        } else if ("1099-NEC".equals(documentType)) {
+            builder.number("Nonemployee Compensation", doc -> orZero(doc.getNonemployee_compensation_box1()))
+                    .number("Federal Tax Withheld", doc -> orZero(doc.getFederal_income_tax_withheld_box4()));
+        }
+
+        return builder
+                .text("State", doc -> doc.getState() != null ? doc.getState() : "")
+                .number("State Wages/Income", doc -> orZero(doc.getState_wages()))
+                .number("State Income Tax", doc -> orZero(doc.getState_income_tax()))
+                .integer("Tax Year", doc -> orZero(doc.getTax_year()))
+                .build();
+    }
+}
@@ -0,0 +1,51 @@
+package com.mohbility.springai.utils;
+
+import com.mohbility.springai.model.W2Result;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Column schema for the legacy W2Result model, shared by its table and Excel exports.
+ */
+public final class W2Columns {
+
+    public static final ColumnSchema<W2Result> EXPORT = ColumnSchema.<W2Result>builder()
+            .text("Employer Name", W2Result::getEmployer_name)
+            .text("Employer EIN", W2Result::getEmployer_ein)
+            .text("Employer Address", W2Result::getEmployer_address)
+            .text("Employee Name", W2Result::getEmployee_name)
+            .text("Employee Address", W2Result::getEmployee_full_address)
+            .text("Employee SSN Last4", W2Result::getEmployee_ssn_last4)
+            .number("Wages Box1", W2Result::getWages_box1)
+            .number("Federal Tax Box2", W2Result::getFederal_income_tax_withheld_box2)
+            .number("Social Security Wages", W2Result::getSocial_security_wages_box3)
+            .number("Medicare Wages", W2Result::getMedicare_wages_box5)
+            .text("State", W2Result::getState)
+            .number("State Wages", W2Result::getState_wages)
+            .number("State Income Tax", W2Result::getState_income_tax)
+            .text("Box 12", w2 -> formatBox12(w2.getBox_12()))
+            .text("Box 13 - Statutory Employee", w2 -> yesNo(w2.isBox13_statutory_employee()))
+            .text("Box 13 - Retirement Plan", w2 -> yesNo(w2.isBox13_retirement_plan()))
+            .text("Box 13 - Third-Party Sick Pay", w2 -> yesNo(w2.isBox13_third_party_sick_pay()))
+            .number("Locality Wages", W2Result::getLocality_wages)
+            .number("Locality Income Tax", W2Result::getLocality_income_tax)
+            .text("Locality Name", W2Result::getLocality_name)
+            .integer("Tax Year", W2Result::getTax_year)
+            .build();
+
+    private W2Columns() {
+    }
+
+    private static String formatBox12(Map<String, Double> box12) {
+        if (box12 == null || box12.isEmpty()) return "";
+        return box12.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> e.getKey() + ": " + e.getValue())
+                .collect(Collectors.joining("; "));
+    }
+
+    private static String yesNo(boolean b) {
+        return b ? "Yes" : "No";
+    }
+}
@@ -0,0 +1,122 @@
+package com.mohbility.springai.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mohbility.springai.exception.ExportStreamException;
+import com.mohbility.springai.exception.GlobalExceptionHandler;
+import com.mohbility.springai.export.ExportWriter;
+import com.mohbility.springai.model.TaxDocumentResult;
+import com.mohbility.springai.service.PreviewStore;
+import com.mohbility.springai.service.TaxDocumentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TaxDocumentControllerDownloadTest {
+
+    private static final String SESSION_HEADER = "X-Session-Id";
+
+    private final TaxDocumentService taxDocumentService = mock(TaxDocumentService.class);
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        List<ExportWriter> writers = List.of(new TextWriter("txt", false), new TextWriter("broken", true));
+        mvc = MockMvcBuilders.standaloneSetup(
+                        new TaxDocumentController(taxDocumentService, mock(PreviewStore.class), writers, new ObjectMapper()))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+        when(taxDocumentService.getExportDocuments(anyString())).thenReturn(List.of(new TaxDocumentResult()));
+    }
+
+    @Test
+    void streamsTheExportWithHeadersSetUpFront() throws Exception {
+        MvcResult started = mvc.perform(get("/download").param("format", "txt").header(SESSION_HEADER, "s1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_PLAIN))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=tax_documents.txt"))
+                .andExpect(content().string("row 1\n"));
+    }
+
+    @Test
+    void rejectsUnknownFormatsBeforeStreaming() throws Exception {
+        mvc.perform(get("/download").param("format", "parquet").header(SESSION_HEADER, "s1"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unsupported export format: parquet"));
+    }
+
+    @Test
+    void rejectsEmptySessionsBeforeStreaming() throws Exception {
+        when(taxDocumentService.getExportDocuments(anyString())).thenReturn(List.of());
+
+        mvc.perform(get("/download").param("format", "txt").header(SESSION_HEADER, "s1"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("No documents available for download"));
+    }
+
+    @Test
+    void failureMidStreamAbortsWithoutAnErrorBody() throws Exception {
+        MvcResult started = mvc.perform(get("/download").param("format", "broken").header(SESSION_HEADER, "s1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertThatThrownBy(() -> mvc.perform(asyncDispatch(started)))
+                .satisfiesAnyOf(
+                        e -> assertThat(e).isInstanceOf(ExportStreamException.class),
+                        e -> assertThat(e).hasCauseInstanceOf(ExportStreamException.class))
+                .hasRootCauseMessage("disk full");
+        assertThat(started.getResponse().isCommitted()).isTrue();
+        assertThat(started.getResponse().getContentAsString()).isEqualTo("row 1\n");
+    }
+
+    /** Writes one line per document, optionally failing after the first one. */
+    private record TextWriter(String format, boolean failAfterFirstRow) implements ExportWriter {
+
+        @Override
+        public MediaType mediaType() {
+            return MediaType.TEXT_PLAIN;
+        }
+
+        @Override
+        public String fileExtension() {
+            return format;
+        }
+
+        @Override
+        public void write(List<TaxDocumentResult> documents, OutputStream out) throws IOException {
+            for (int i = 0; i < documents.size(); i++) {
+                out.write(("row " + (i + 1) + "\n").getBytes(StandardCharsets.UTF_8));
+                if (failAfterFirstRow) {
+                    out.flush();
+                    throw new IOException("disk full");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.mohbility.springai.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mohbility.springai.exception.GlobalExceptionHandler;
+import com.mohbility.springai.exception.JobQueueFullException;
+import com.mohbility.springai.model.ExtractionOutcome;
+import com.mohbility.springai.model.TaxDocumentResult;
+import com.mohbility.springai.service.ExtractionJob;
+import com.mohbility.springai.service.PreviewStore;
+import com.mohbility.springai.service.TaxDocumentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TaxDocumentControllerJobsTest {
+
+    private static final String SESSION_HEADER = "X-Session-Id";
+    private static final String JOB_ID = "job-1";
+
+    private final TaxDocumentService taxDocumentService = mock(TaxDocumentService.class);
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        mvc = MockMvcBuilders.standaloneSetup(
+                        new TaxDocumentController(taxDocumentService, mock(PreviewStore.class), List.of(), new ObjectMapper()))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void fullQueueIsReportedAs503WithRetryAfter() throws Exception {
+        when(taxDocumentService.submitExtractionJob(anyString(), anyList()))
+                .thenThrow(new JobQueueFullException("Extraction queue is full, please retry shortly"));
+
+        mvc.perform(multipart("/jobs")
+                        .file(new MockMultipartFile("files", "w2.pdf", "application/pdf", new byte[]{1}))
+                        .header(SESSION_HEADER, "owner"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "10"))
+                .andExpect(jsonPath("$.error").value("Extraction queue is full, please retry shortly"));
+    }
+
+    @Test
+    void jobsOfAnotherSessionAreNotFound() throws Exception {
+        ExtractionJob job = completedJob();
+        when(taxDocumentService.getExtractionJob("owner", JOB_ID)).thenReturn(job);
+
+        mvc.perform(get("/jobs/" + JOB_ID).header(SESSION_HEADER, "owner"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+        mvc.perform(get("/jobs/" + JOB_ID).header(SESSION_HEADER, "intruder"))
+                .andExpect(status().isNotFound());
+        mvc.perform(get("/jobs/" + JOB_ID + "/events").header(SESSION_HEADER, "intruder"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void eventsStreamEachDocumentThenCompletion() throws Exception {
+        ExtractionJob job = completedJob();
+        when(taxDocumentService.getExtractionJob(eq("owner"), eq(JOB_ID))).thenReturn(job);
+        doAnswer(call -> {
+            ExtractionJob.Listener listener = call.getArgument(0);
+            listener.onDocument(job, 0, job.getOutcomes().get(0));
+            listener.onDocument(job, 1, job.getOutcomes().get(1));
+            listener.onComplete(job);
+            return null;
+        }).when(job).subscribe(any());
+
+        MvcResult started = mvc.perform(get("/jobs/" + JOB_ID + "/events").header(SESSION_HEADER, "owner"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = started.getResponse().getContentAsString();
+        assertThat(body.split("event:", -1)).hasSize(4);
+        assertThat(body.indexOf("\"file\":\"a.pdf\"")).isPositive()
+                .isLessThan(body.indexOf("\"file\":\"b.pdf\""));
+        assertThat(body.indexOf("event:completed")).isGreaterThan(body.indexOf("\"file\":\"b.pdf\""));
+        assertThat(body).contains("\"status\":\"failed\"", "\"error\":\"Not a tax form\"");
+    }
+
+    private static ExtractionJob completedJob() {
+        TaxDocumentResult result = new TaxDocumentResult();
+        result.setDocument_type("W2");
+        result.setRecipient_name("Jane Doe");
+        List<ExtractionOutcome> outcomes = Arrays.asList(
+                ExtractionOutcome.success("a.pdf", "digest-a", List.of(result)),
+                ExtractionOutcome.failure("b.pdf", "Not a tax form"));
+
+        ExtractionJob job = mock(ExtractionJob.class);
+        when(job.getId()).thenReturn(JOB_ID);
+        when(job.getStatus()).thenReturn(ExtractionJob.Status.COMPLETED);
+        when(job.getFinished()).thenReturn(2);
+        when(job.getFileNames()).thenReturn(List.of("a.pdf", "b.pdf"));
+        when(job.getOutcomes()).thenReturn(outcomes);
+        return job;
+    }
+}
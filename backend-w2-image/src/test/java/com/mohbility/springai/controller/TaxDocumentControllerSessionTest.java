@@ -0,0 +1,82 @@
+package com.mohbility.springai.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mohbility.springai.exception.GlobalExceptionHandler;
+import com.mohbility.springai.service.PreviewStore;
+import com.mohbility.springai.service.TaxDocumentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TaxDocumentControllerSessionTest {
+
+    private static final String SESSION_HEADER = "X-Session-Id";
+
+    private final TaxDocumentService taxDocumentService = mock(TaxDocumentService.class);
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        mvc = MockMvcBuilders.standaloneSetup(
+                        new TaxDocumentController(taxDocumentService, mock(PreviewStore.class), List.of(), new ObjectMapper()))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void requestsWithoutASessionAreRejected() throws Exception {
+        mvc.perform(get("/summary"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Missing or invalid X-Session-Id header"));
+        mvc.perform(get("/download"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/chat/general/summary/stream"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(taxDocumentService);
+    }
+
+    @Test
+    void sessionIdInTheQueryStringIsIgnored() throws Exception {
+        mvc.perform(get("/summary").param("sessionId", "s1"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(taxDocumentService);
+    }
+
+    @Test
+    void malformedSessionIdsAreRejected() throws Exception {
+        mvc.perform(post("/chat/general")
+                        .header(SESSION_HEADER, "../other-session")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"question\":\"hi\"}"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/summary").header(SESSION_HEADER, "x".repeat(65)))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(taxDocumentService);
+    }
+
+    @Test
+    void validSessionIdReachesTheService() throws Exception {
+        when(taxDocumentService.generateSummary("tab-1", null)).thenReturn("Summary");
+
+        mvc.perform(get("/summary").header(SESSION_HEADER, "tab-1"))
+                .andExpect(status().isOk());
+
+        verify(taxDocumentService).generateSummary("tab-1", null);
+    }
+}
@@ -0,0 +1,107 @@
+package com.mohbility.springai.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mohbility.springai.service.PreviewStore;
+import com.mohbility.springai.service.TaxDocumentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class TaxDocumentControllerStreamTest {
+
+    private static final String SESSION_HEADER = "X-Session-Id";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TaxDocumentService taxDocumentService = mock(TaxDocumentService.class);
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        mvc = MockMvcBuilders.standaloneSetup(
+                new TaxDocumentController(taxDocumentService, mock(PreviewStore.class), List.of(), objectMapper)).build();
+    }
+
+    @Test
+    void leadingSpacesOfTokensSurviveTheRoundTrip() throws Exception {
+        when(taxDocumentService.generalChatStream(anyString(), anyString()))
+                .thenReturn(Flux.just("Hello", " world", ",", "  indented", "\nnext line"));
+
+        MvcResult started = mvc.perform(post("/chat/general/stream")
+                        .header(SESSION_HEADER, "s1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"question\":\"hi\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        started.getAsyncResult();
+
+        List<String> deltas = new ArrayList<>();
+        for (Event event : parse(started.getResponse().getContentAsString())) {
+            assertThat(event.name()).isEqualTo("delta");
+            deltas.add(objectMapper.readTree(event.data()).get("delta").asText());
+        }
+        assertThat(deltas).containsExactly("Hello", " world", ",", "  indented", "\nnext line");
+        assertThat(String.join("", deltas)).isEqualTo("Hello world,  indented\nnext line");
+    }
+
+    @Test
+    void failureMidStreamEndsWithAnErrorEvent() throws Exception {
+        when(taxDocumentService.generateGeneralChatSummaryStream(anyString()))
+                .thenReturn(Flux.concat(Flux.just("Partial"), Flux.error(new IllegalStateException("boom"))));
+
+        MvcResult started = mvc.perform(get("/chat/general/summary/stream").header(SESSION_HEADER, "s1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        started.getAsyncResult();
+
+        List<Event> events = parse(started.getResponse().getContentAsString());
+        assertThat(events).extracting(Event::name).containsExactly("delta", "error");
+        assertThat(objectMapper.readTree(events.get(1).data()).get("error").asText()).contains("boom");
+    }
+
+    private record Event(String name, String data) {
+    }
+
+    /** Parses the stream the way browsers do, dropping the single space after the field colon. */
+    private static List<Event> parse(String body) {
+        List<Event> events = new ArrayList<>();
+        String name = "message";
+        StringBuilder data = null;
+        for (String line : body.split("\n", -1)) {
+            if (line.isEmpty()) {
+                if (data != null) {
+                    events.add(new Event(name, data.toString()));
+                }
+                name = "message";
+                data = null;
+                continue;
+            }
+            int colon = line.indexOf(':');
+            String field = colon < 0 ? line : line.substring(0, colon);
+            String value = colon < 0 ? "" : line.substring(colon + 1);
+            if (value.startsWith(" ")) {
+                value = value.substring(1);
+            }
+            if (field.equals("event")) {
+                name = value;
+            } else if (field.equals("data")) {
+                data = data == null ? new StringBuilder(value) : data.append('\n').append(value);
+            }
+        }
+        return events;
+    }
+}
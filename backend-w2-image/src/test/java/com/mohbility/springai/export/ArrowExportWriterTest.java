@@ -0,0 +1,84 @@
+package com.mohbility.springai.export;
+
+import com.mohbility.springai.model.TaxDocumentResult;
+import com.mohbility.springai.utils.TaxDocumentColumns;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArrowExportWriterTest {
+
+    private final ArrowExportWriter writer = new ArrowExportWriter();
+
+    @Test
+    void writesTypedColumnsThatReadBack() throws Exception {
+        TaxDocumentResult w2 = new TaxDocumentResult();
+        w2.setDocument_type("W2");
+        w2.setPayer_name("Acme Payroll");
+        w2.setWages_box1(52000.25);
+        w2.setTax_year(2025);
+
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(write(List.of(w2))), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertThat(root.getSchema().getFields()).extracting(Field::getName)
+                    .containsExactlyElementsOf(TaxDocumentColumns.EXPORT.columns().stream().map(c -> c.header()).toList());
+
+            assertThat(reader.loadNextBatch()).isTrue();
+            assertThat(root.getRowCount()).isEqualTo(1);
+            assertThat(((VarCharVector) root.getVector("Payer Name")).getObject(0).toString()).isEqualTo("Acme Payroll");
+            assertThat(root.getVector("Payer EIN").isNull(0)).isTrue();
+            assertThat(((Float8Vector) root.getVector("Wages (W-2 Box 1)")).get(0)).isEqualTo(52000.25);
+            assertThat(((Float8Vector) root.getVector("Federal Tax Withheld (W-2 Box 2)")).get(0)).isZero();
+            assertThat(((IntVector) root.getVector("Tax Year")).get(0)).isEqualTo(2025);
+            assertThat(reader.loadNextBatch()).isFalse();
+        }
+    }
+
+    @Test
+    void splitsLargeExportsIntoRecordBatches() throws Exception {
+        List<TaxDocumentResult> documents = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            TaxDocumentResult doc = new TaxDocumentResult();
+            doc.setTax_year(2000 + i % 30);
+            documents.add(doc);
+        }
+
+        List<Integer> batchSizes = new ArrayList<>();
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(write(documents)), allocator)) {
+            while (reader.loadNextBatch()) {
+                batchSizes.add(reader.getVectorSchemaRoot().getRowCount());
+            }
+        }
+        assertThat(batchSizes).containsExactly(1024, 1024, 452);
+    }
+
+    @Test
+    void emptyExportStillCarriesTheSchema() throws Exception {
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(write(List.of())), allocator)) {
+            assertThat(reader.getVectorSchemaRoot().getSchema().getFields()).hasSize(TaxDocumentColumns.EXPORT.size());
+            assertThat(reader.loadNextBatch()).isFalse();
+        }
+    }
+
+    private byte[] write(List<TaxDocumentResult> documents) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(documents, out);
+        return out.toByteArray();
+    }
+}
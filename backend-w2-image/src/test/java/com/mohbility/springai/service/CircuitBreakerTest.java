@@ -0,0 +1,82 @@
+package com.mohbility.springai.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofMillis(100);
+
+    private final CircuitBreaker breaker = new CircuitBreaker("chat", 3, OPEN_DURATION);
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        breaker.onFailure();
+        breaker.onFailure();
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        breaker.onFailure();
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.snapshot()).containsEntry("state", "OPEN").containsEntry("rejectedCalls", 1L);
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.snapshot()).containsEntry("state", "CLOSED").containsEntry("consecutiveFailures", 2);
+    }
+
+    @Test
+    void halfOpenLetsOneTrialThroughAndClosesOnSuccess() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_DURATION.toMillis() + 20);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.snapshot()).containsEntry("state", "HALF_OPEN");
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        breaker.onSuccess();
+        assertThat(breaker.snapshot()).containsEntry("state", "CLOSED");
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void failedTrialReopensTheCircuit() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_DURATION.toMillis() + 20);
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        breaker.onFailure();
+        assertThat(breaker.snapshot()).containsEntry("state", "OPEN");
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void abandonedTrialIsReplacedAfterTheOpenDuration() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_DURATION.toMillis() + 20);
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        // The trial never reports an outcome
+        Thread.sleep(OPEN_DURATION.toMillis() + 20);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+}
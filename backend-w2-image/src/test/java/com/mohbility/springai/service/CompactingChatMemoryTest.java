@@ -0,0 +1,121 @@
+package com.mohbility.springai.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CompactingChatMemoryTest {
+
+    private static final String CONVERSATION = "session:Jane Doe";
+    private static final String SUMMARY = "Client is single and earns wages from Acme.";
+
+    private final PromptCacheMetrics promptCacheMetrics = mock(PromptCacheMetrics.class);
+    private PersistentChatMemoryRepository repository;
+    private CompactingChatMemory memory;
+
+    private CompactingChatMemory memory(int windowTokens, int compactThresholdTokens) throws IOException {
+        return memory(windowTokens, compactThresholdTokens, "");
+    }
+
+    private CompactingChatMemory memory(int windowTokens, int compactThresholdTokens, String dir) throws IOException {
+        OpenAiClientFactory clientFactory = mock(OpenAiClientFactory.class, RETURNS_DEEP_STUBS);
+        when(clientFactory.builder(OpenAiClientFactory.CallType.CHAT).build()).thenReturn(mock(ChatClient.class, RETURNS_DEEP_STUBS));
+        when(promptCacheMetrics.content(eq("chat-compaction"), ArgumentMatchers.<ChatResponse>any())).thenReturn(SUMMARY);
+        repository = new PersistentChatMemoryRepository(new ObjectMapper(), dir, Duration.ofDays(30), 100);
+        memory = new CompactingChatMemory(repository, clientFactory, promptCacheMetrics, windowTokens, compactThresholdTokens);
+        return memory;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (memory != null) {
+            memory.shutdown();
+        }
+    }
+
+    @Test
+    void getReturnsOnlyTheNewestMessagesThatFitTheWindow() throws IOException {
+        // Each message is estimated at 13 tokens, so a 30-token window holds the last two
+        CompactingChatMemory memory = memory(30, 1000);
+        memory.add(CONVERSATION, messages(6));
+
+        assertThat(memory.get(CONVERSATION)).extracting(Message::getText)
+                .containsExactly(text(5), text(6));
+        assertThat(repository.findByConversationId(CONVERSATION)).hasSize(6);
+        verify(promptCacheMetrics, never()).content(eq("chat-compaction"), ArgumentMatchers.<ChatResponse>any());
+    }
+
+    @Test
+    void latestMessageIsKeptEvenWhenItExceedsTheWindow() throws IOException {
+        CompactingChatMemory memory = memory(5, 1000);
+        memory.add(CONVERSATION, messages(3));
+
+        assertThat(memory.get(CONVERSATION)).extracting(Message::getText).containsExactly(text(3));
+    }
+
+    @Test
+    void historyPastTheThresholdIsCompactedIntoASummary() throws IOException, InterruptedException {
+        CompactingChatMemory memory = memory(30, 60);
+        memory.add(CONVERSATION, messages(6));
+
+        List<Message> stored = awaitStoredSize(3);
+
+        assertThat(stored.get(0).getText()).endsWith(SUMMARY);
+        assertThat(stored.subList(1, 3)).extracting(Message::getText).containsExactly(text(5), text(6));
+        List<Message> window = memory.get(CONVERSATION);
+        assertThat(window.get(0).getText()).endsWith(SUMMARY);
+        assertThat(window.get(window.size() - 1).getText()).isEqualTo(text(6));
+    }
+
+    @Test
+    void releaseKeepsTheStoredHistoryAndClearDeletesIt(@TempDir Path dir) throws IOException {
+        CompactingChatMemory memory = memory(1000, 2000, dir.toString());
+        memory.add(CONVERSATION, messages(2));
+
+        memory.release(CONVERSATION);
+        assertThat(memory.get(CONVERSATION)).hasSize(2);
+
+        memory.clear(CONVERSATION);
+        assertThat(memory.get(CONVERSATION)).isEmpty();
+    }
+
+    private List<Message> awaitStoredSize(int size) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        List<Message> stored = repository.findByConversationId(CONVERSATION);
+        while (stored.size() != size && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            stored = repository.findByConversationId(CONVERSATION);
+        }
+        assertThat(stored).hasSize(size);
+        return stored;
+    }
+
+    private static List<Message> messages(int count) {
+        return IntStream.rangeClosed(1, count).<Message>mapToObj(i -> new UserMessage(text(i))).toList();
+    }
+
+    /** 35 characters: an estimated 13 tokens. */
+    private static String text(int i) {
+        return String.format("Message number %02d with some padding", i);
+    }
+}
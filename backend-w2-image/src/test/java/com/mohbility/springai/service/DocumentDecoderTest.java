@@ -0,0 +1,108 @@
+package com.mohbility.springai.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class DocumentDecoderTest {
+
+    private final PdfRasterizer rasterizer = spy(new PdfRasterizer(16 * 1024 * 1024, 2));
+    private final DocumentDecoder decoder = new DocumentDecoder(rasterizer,
+            new ImagePreprocessor(72, 4_000_000, 6_000_000, 0.85f, 1000, 512),
+            new PagePreClassifier(true, 0.004, 24));
+
+    @Test
+    void onlyForwardedPagesAreSent() throws IOException {
+        DocumentDecoder.DecodedDocument decoded = decoder.decode(pdf(false, true, false));
+
+        assertThat(decoded.pages()).hasSize(1);
+        assertThat(decoded.thumbnail()).isNotNull();
+    }
+
+    @Test
+    void allRejectedPagesFallBackWithoutRenderingTwice() throws IOException {
+        DocumentDecoder.DecodedDocument decoded = decoder.decode(pdf(false, false));
+
+        assertThat(decoded.pages()).hasSize(2);
+        assertThat(decoded.pages()).allSatisfy(page -> assertThat(page.image().bytes()).isNotEmpty());
+        verify(rasterizer, times(1)).rasterize(any(), anyFloat(), anyInt(), anyBoolean(), any());
+    }
+
+    @Test
+    void pdfPagesAreMeasuredAgainstTheirShareOfTheUpload() throws IOException {
+        MockMultipartFile file = pdf(true, true, true);
+
+        DocumentDecoder.DecodedDocument decoded = decoder.decode(file);
+
+        assertThat(decoded.pages()).isNotEmpty()
+                .allSatisfy(page -> assertThat(page.image().originalBytes()).isEqualTo(file.getSize() / 3));
+    }
+
+    @Test
+    void pagesWithFormValuesInTheirTextLayerAreEncodedOnFirstUse() throws IOException {
+        DocumentDecoder.DecodedDocument decoded = decoder.decode(textPdf("Form W-2 Wages, tips, other compensation 52,000.00"));
+
+        DocumentDecoder.DecodedPage page = decoded.pages().get(0);
+        assertThat(page.isImagePrepared()).isFalse();
+        assertThat(page.image().bytes()).isNotEmpty();
+        assertThat(page.isImagePrepared()).isTrue();
+    }
+
+    @Test
+    void pagesWithoutFormValuesAreEncodedRightAway() throws IOException {
+        DocumentDecoder.DecodedDocument decoded = decoder.decode(pdf(true));
+
+        assertThat(decoded.pages()).singleElement()
+                .satisfies(page -> assertThat(page.isImagePrepared()).isTrue());
+    }
+
+    private static MockMultipartFile textPdf(String text) throws IOException {
+        try (PDDocument doc = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PDPage page = new PDPage(PDRectangle.LETTER);
+            doc.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(doc, page)) {
+                content.beginText();
+                content.setFont(PDType1Font.HELVETICA, 12);
+                content.newLineAtOffset(72, 700);
+                content.showText(text);
+                content.endText();
+            }
+            doc.save(out);
+            return new MockMultipartFile("file", "w2.pdf", "application/pdf", out.toByteArray());
+        }
+    }
+
+    /** One page per flag: a page covered in a dark block when true, blank otherwise. */
+    private static MockMultipartFile pdf(boolean... inked) throws IOException {
+        try (PDDocument doc = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (boolean ink : inked) {
+                PDPage page = new PDPage(PDRectangle.LETTER);
+                doc.addPage(page);
+                if (ink) {
+                    try (PDPageContentStream content = new PDPageContentStream(doc, page)) {
+                        content.addRect(72, 72, 300, 400);
+                        content.fill();
+                    }
+                }
+            }
+            doc.save(out);
+            return new MockMultipartFile("file", "forms.pdf", "application/pdf", out.toByteArray());
+        }
+    }
+}
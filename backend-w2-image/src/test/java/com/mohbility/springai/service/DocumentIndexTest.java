@@ -0,0 +1,69 @@
+package com.mohbility.springai.service;
+
+import com.mohbility.springai.model.TaxDocumentResult;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentIndexTest {
+
+    @Test
+    void semanticKeyIncludesTheBoxAmounts() {
+        assertThat(DocumentIndex.semanticKey(w2(52000.00, 6100.50)))
+                .isEqualTo("W2|123456789|1234|2025|5200000|610050||");
+        assertThat(DocumentIndex.semanticKey(w2(52000.00, 6100.50)))
+                .isNotEqualTo(DocumentIndex.semanticKey(w2(48250.00, 6100.50)))
+                .isNotEqualTo(DocumentIndex.semanticKey(w2(52000.00, 5900.00)));
+    }
+
+    @Test
+    void semanticKeyNormalizesIdentifyingFields() {
+        TaxDocumentResult formatted = w2(52000.00, 6100.50);
+        formatted.setDocument_type(" w2 ");
+        formatted.setPayer_ein("12-3456789");
+        formatted.setRecipient_ssn_last4("XXX-XX-1234");
+
+        assertThat(DocumentIndex.semanticKey(formatted)).isEqualTo(DocumentIndex.semanticKey(w2(52000.00, 6100.50)));
+    }
+
+    @Test
+    void semanticKeyRequiresEveryIdentifyingField() {
+        TaxDocumentResult noEin = w2(52000.00, 6100.50);
+        noEin.setPayer_ein(null);
+        TaxDocumentResult noYear = w2(52000.00, 6100.50);
+        noYear.setTax_year(0);
+
+        assertThat(DocumentIndex.semanticKey(noEin)).isNull();
+        assertThat(DocumentIndex.semanticKey(noYear)).isNull();
+    }
+
+    @Test
+    void sameTemplateFormsWithDifferentAmountsAreBothAccepted() {
+        DocumentIndex index = new DocumentIndex("session", 16);
+
+        assertThat(index.accept(w2(52000.00, 6100.50))).isTrue();
+        assertThat(index.accept(w2(48250.00, 5210.00))).isTrue();
+        assertThat(index.accept(w2(52000.00, 6100.50))).isFalse();
+    }
+
+    @Test
+    void sameResultIsOnlyAcceptedOnce() {
+        DocumentIndex index = new DocumentIndex("session", 16);
+        TaxDocumentResult incomplete = new TaxDocumentResult();
+
+        assertThat(index.accept(incomplete)).isTrue();
+        assertThat(index.accept(incomplete)).isFalse();
+        assertThat(index.accept(new TaxDocumentResult())).isTrue();
+    }
+
+    private static TaxDocumentResult w2(double wages, double withheld) {
+        TaxDocumentResult doc = new TaxDocumentResult();
+        doc.setDocument_type("W2");
+        doc.setPayer_ein("123456789");
+        doc.setRecipient_ssn_last4("1234");
+        doc.setTax_year(2025);
+        doc.setWages_box1(wages);
+        doc.setFederal_income_tax_withheld_box2(withheld);
+        return doc;
+    }
+}
@@ -0,0 +1,126 @@
+package com.mohbility.springai.service;
+
+import com.mohbility.springai.exception.JobQueueFullException;
+import com.mohbility.springai.model.ExtractionOutcome;
+import com.mohbility.springai.model.TaxDocumentResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExtractionJobServiceTest {
+
+    private final TaxDocumentExtractionService extractionService = mock(TaxDocumentExtractionService.class);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ExtractionJobService jobs;
+
+    private ExtractionJobService jobs(int workers, int queueCapacity, Duration retention) {
+        jobs = new ExtractionJobService(new BatchExtractionService(extractionService, 4), workers, queueCapacity, retention);
+        return jobs;
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (jobs != null) {
+            jobs.shutdown();
+        }
+    }
+
+    @Test
+    void submissionsBeyondTheQueueAreRejected() throws IOException {
+        when(extractionService.extractFromFile(any(), any())).thenAnswer(call -> {
+            release.await(5, TimeUnit.SECONDS);
+            return success(call.getArgument(0));
+        });
+        ExtractionJobService jobs = jobs(1, 1, Duration.ofHours(1));
+
+        jobs.submit(files("running.pdf"), new DocumentIndex("s1", 16), new ExtractionJob.Listener() { });
+        jobs.submit(files("queued.pdf"), new DocumentIndex("s2", 16), new ExtractionJob.Listener() { });
+
+        assertThatThrownBy(() -> jobs.submit(files("rejected.pdf"), new DocumentIndex("s3", 16), new ExtractionJob.Listener() { }))
+                .isInstanceOf(JobQueueFullException.class);
+    }
+
+    @Test
+    void listenerSeesEachDocumentThenCompletion() throws Exception {
+        when(extractionService.extractFromFile(any(), any())).thenAnswer(call -> success(call.getArgument(0)));
+        List<String> events = new CopyOnWriteArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+
+        ExtractionJob job = jobs(1, 1, Duration.ofHours(1)).submit(files("a.pdf", "b.pdf"), new DocumentIndex("s1", 16),
+                new ExtractionJob.Listener() {
+                    @Override
+                    public void onDocument(ExtractionJob source, int index, ExtractionOutcome outcome) {
+                        events.add("document " + index + " " + outcome.getFileName());
+                    }
+
+                    @Override
+                    public void onComplete(ExtractionJob source) {
+                        events.add("completed " + source.getFinished());
+                        completed.countDown();
+                    }
+                });
+
+        assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(events).hasSize(3).contains("document 0 a.pdf", "document 1 b.pdf").endsWith("completed 2");
+        assertThat(job.getStatus()).isEqualTo(ExtractionJob.Status.COMPLETED);
+    }
+
+    @Test
+    void jobsAreOnlyVisibleToTheSubmittingSession() throws IOException {
+        when(extractionService.extractFromFile(any(), any())).thenAnswer(call -> success(call.getArgument(0)));
+        ExtractionJobService jobs = jobs(1, 1, Duration.ofHours(1));
+
+        ExtractionJob job = jobs.submit(files("a.pdf"), new DocumentIndex("owner", 16), new ExtractionJob.Listener() { });
+
+        assertThat(jobs.get("owner", job.getId())).isSameAs(job);
+        assertThat(jobs.get("someone-else", job.getId())).isNull();
+    }
+
+    @Test
+    void sweepDropsCompletedJobsPastRetention() throws Exception {
+        when(extractionService.extractFromFile(any(), any())).thenAnswer(call -> success(call.getArgument(0)));
+        CountDownLatch completed = new CountDownLatch(1);
+        ExtractionJobService jobs = jobs(1, 1, Duration.ofMillis(1));
+
+        ExtractionJob job = jobs.submit(files("a.pdf"), new DocumentIndex("s1", 16), new ExtractionJob.Listener() {
+            @Override
+            public void onComplete(ExtractionJob source) {
+                completed.countDown();
+            }
+        });
+        assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(20);
+
+        jobs.purgeExpired();
+
+        assertThat(jobs.get("s1", job.getId())).isNull();
+    }
+
+    private static List<MultipartFile> files(String... names) {
+        return List.of(names).stream()
+                .<MultipartFile>map(name -> new MockMultipartFile("files", name, "application/pdf", name.getBytes()))
+                .toList();
+    }
+
+    private static ExtractionOutcome success(MultipartFile file) {
+        TaxDocumentResult result = new TaxDocumentResult();
+        result.setDocument_type("W2");
+        result.setRecipient_name("Jane Doe");
+        return ExtractionOutcome.success(file.getOriginalFilename(), file.getOriginalFilename(), List.of(result));
+    }
+}
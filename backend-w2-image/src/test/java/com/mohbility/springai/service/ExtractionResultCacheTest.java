@@ -0,0 +1,112 @@
+package com.mohbility.springai.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mohbility.springai.model.TaxDocumentResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExtractionResultCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ExtractionResultCache cache(int maxEntries, Duration ttl, String diskDir) throws IOException {
+        return new ExtractionResultCache(objectMapper, maxEntries, ttl, diskDir);
+    }
+
+    private static TaxDocumentResult w2(String employer, double wages) {
+        TaxDocumentResult result = new TaxDocumentResult();
+        result.setDocument_type("W2");
+        result.setPayer_name(employer);
+        result.setWages_box1(wages);
+        Map<String, Double> box12 = new HashMap<>();
+        box12.put("D", 1500.0);
+        result.setBox_12(box12);
+        return result;
+    }
+
+    @Test
+    void editingTheStoredResultsDoesNotChangeTheCache() throws IOException {
+        ExtractionResultCache cache = cache(10, Duration.ofHours(1), null);
+        TaxDocumentResult stored = w2("Acme", 50000.0);
+        List<TaxDocumentResult> results = new ArrayList<>(List.of(stored));
+        cache.put("k", results);
+
+        stored.setWages_box1(1.0);
+        stored.getBox_12().put("W", 99.0);
+        results.clear();
+
+        List<TaxDocumentResult> cached = cache.get("k").orElseThrow();
+        assertThat(cached).hasSize(1);
+        assertThat(cached.get(0).getWages_box1()).isEqualTo(50000.0);
+        assertThat(cached.get(0).getBox_12()).containsOnlyKeys("D");
+    }
+
+    @Test
+    void editingAReturnedResultDoesNotLeakIntoTheNextHit() throws IOException {
+        ExtractionResultCache cache = cache(10, Duration.ofHours(1), null);
+        cache.put("k", List.of(w2("Acme", 50000.0)));
+
+        TaxDocumentResult first = cache.get("k").orElseThrow().get(0);
+        first.setPayer_name("Edited by user");
+        first.getBox_12().put("W", 99.0);
+
+        TaxDocumentResult second = cache.get("k").orElseThrow().get(0);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getPayer_name()).isEqualTo("Acme");
+        assertThat(second.getBox_12()).containsOnlyKeys("D");
+    }
+
+    @Test
+    void expiredEntriesMiss() throws IOException, InterruptedException {
+        ExtractionResultCache cache = cache(10, Duration.ofMillis(50), null);
+        cache.put("k", List.of(w2("Acme", 50000.0)));
+        assertThat(cache.get("k")).isPresent();
+
+        Thread.sleep(120);
+
+        assertThat(cache.get("k")).isEmpty();
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() throws IOException {
+        ExtractionResultCache cache = cache(2, Duration.ofHours(1), null);
+        cache.put("a", List.of(w2("A", 1.0)));
+        cache.put("b", List.of(w2("B", 2.0)));
+        cache.get("a");
+        cache.put("c", List.of(w2("C", 3.0)));
+
+        assertThat(cache.get("a")).isPresent();
+        assertThat(cache.get("b")).isEmpty();
+        assertThat(cache.get("c")).isPresent();
+    }
+
+    @Test
+    void diskTierSurvivesARestart(@TempDir Path dir) throws IOException {
+        cache(10, Duration.ofHours(1), dir.toString()).put("k", List.of(w2("Acme", 50000.0)));
+
+        ExtractionResultCache restarted = cache(10, Duration.ofHours(1), dir.toString());
+
+        List<TaxDocumentResult> cached = restarted.get("k").orElseThrow();
+        assertThat(cached.get(0).getPayer_name()).isEqualTo("Acme");
+        assertThat(cached.get(0).getWages_box1()).isEqualTo(50000.0);
+        assertThat(restarted.get("missing")).isEmpty();
+    }
+
+    @Test
+    void emptyResultsAreNotCached() throws IOException {
+        ExtractionResultCache cache = cache(10, Duration.ofHours(1), null);
+        cache.put("k", List.of());
+
+        assertThat(cache.get("k")).isEmpty();
+    }
+}
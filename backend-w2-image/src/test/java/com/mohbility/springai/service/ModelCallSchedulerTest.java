@@ -0,0 +1,132 @@
+package com.mohbility.springai.service;
+
+import com.mohbility.springai.exception.ModelUnavailableException;
+import com.mohbility.springai.service.ModelCallScheduler.Priority;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class ModelCallSchedulerTest {
+
+    private final List<ModelCallScheduler> schedulers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        schedulers.forEach(ModelCallScheduler::shutdown);
+    }
+
+    private ModelCallScheduler scheduler(int requestsPerMinute, int tokensPerMinute, double reserve, Duration maxWait) {
+        ModelCallScheduler scheduler = new ModelCallScheduler(true, requestsPerMinute, tokensPerMinute, reserve, maxWait, 1100, 800);
+        schedulers.add(scheduler);
+        return scheduler;
+    }
+
+    @Test
+    void disabledSchedulerAdmitsEverythingImmediately() {
+        ModelCallScheduler scheduler = new ModelCallScheduler(false, 1, 1, 0.2, Duration.ofMillis(10), 1100, 800);
+        schedulers.add(scheduler);
+
+        for (int i = 0; i < 5; i++) {
+            scheduler.acquire(Priority.BATCH, "s", 1_000_000).release(1_000_000);
+        }
+        assertThat(interactive(scheduler)).containsEntry("granted", 0L);
+    }
+
+    @Test
+    void releaseSettlesTheEstimateWithActualUsage() {
+        ModelCallScheduler scheduler = scheduler(500, 60_000, 0.2, Duration.ofSeconds(1));
+
+        ModelCallScheduler.Permit permit = scheduler.acquire(Priority.INTERACTIVE, "s", 10_000);
+        assertThat(availableTokens(scheduler)).isCloseTo(50_000, within(500L));
+
+        permit.release(2_000);
+        assertThat(availableTokens(scheduler)).isCloseTo(58_000, within(500L));
+    }
+
+    @Test
+    void batchCallsLeaveTheInteractiveReserve() {
+        // 60 requests per minute with half reserved: batch may only use 30 of them
+        ModelCallScheduler scheduler = scheduler(60, 1_000_000, 0.5, Duration.ofMillis(200));
+        for (int i = 0; i < 30; i++) {
+            scheduler.acquire(Priority.BATCH, "upload", 100);
+        }
+
+        assertThatThrownBy(() -> scheduler.acquire(Priority.BATCH, "upload", 100))
+                .isInstanceOf(ModelUnavailableException.class);
+        scheduler.acquire(Priority.INTERACTIVE, "chat", 100);
+
+        assertThat(scheduler.snapshot()).containsEntry("timeouts", 1L);
+        assertThat(interactive(scheduler)).containsEntry("granted", 1L);
+    }
+
+    @Test
+    void interactiveGoesFirstAndBatchSessionsTakeTurns() throws InterruptedException {
+        // One request every 250 ms once the bucket is empty
+        ModelCallScheduler scheduler = scheduler(240, 1_000_000, 0, Duration.ofSeconds(10));
+        for (int i = 0; i < 240; i++) {
+            scheduler.acquire(Priority.INTERACTIVE, "warm-up", 1);
+        }
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        String[][] calls = {{"BATCH", "a1"}, {"BATCH", "a2"}, {"BATCH", "a3"}, {"BATCH", "b1"}, {"BATCH", "b2"},
+                {"INTERACTIVE", "c1"}};
+        int queued = 0;
+        for (String[] call : calls) {
+            Priority priority = Priority.valueOf(call[0]);
+            String name = call[1];
+            Thread thread = new Thread(() -> {
+                scheduler.acquire(priority, name.substring(0, 1), 1);
+                order.add(name);
+            });
+            thread.start();
+            threads.add(thread);
+            queued++;
+            awaitQueued(scheduler, queued);
+        }
+        for (Thread thread : threads) {
+            thread.join(10_000);
+        }
+
+        assertThat(order).containsExactly("c1", "a1", "b1", "a2", "b2", "a3");
+    }
+
+    /** Waits until {@code count} tickets have been queued or granted since warm-up. */
+    private static void awaitQueued(ModelCallScheduler scheduler, int count) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            long seen = 0;
+            for (Map<String, Object> perClass : List.of(interactive(scheduler), batch(scheduler))) {
+                seen += ((Number) perClass.get("queued")).longValue();
+            }
+            seen += (Long) interactive(scheduler).get("granted") - 240 + (Long) batch(scheduler).get("granted");
+            if (seen >= count) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        throw new AssertionError("Ticket was not queued");
+    }
+
+    private static long availableTokens(ModelCallScheduler scheduler) {
+        return (Long) scheduler.snapshot().get("availableTokens");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> interactive(ModelCallScheduler scheduler) {
+        return (Map<String, Object>) scheduler.snapshot().get("interactive");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> batch(ModelCallScheduler scheduler) {
+        return (Map<String, Object>) scheduler.snapshot().get("batch");
+    }
+}
@@ -0,0 +1,164 @@
+package com.mohbility.springai.service;
+
+import com.mohbility.springai.exception.ModelUnavailableException;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OpenAiClientFactoryTest {
+
+    private static final Duration INITIAL_BACKOFF = Duration.ofMillis(100);
+    private static final Duration OPEN_DURATION = Duration.ofMillis(300);
+    private static final String COMPLETION = """
+            {"id":"chatcmpl-1","object":"chat.completion","created":1,"model":"gpt-4o-mini",
+             "choices":[{"index":0,"message":{"role":"assistant","content":"ok"},"finish_reason":"stop"}],
+             "usage":{"prompt_tokens":5,"completion_tokens":1,"total_tokens":6}}""";
+
+    private MockWebServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    private OpenAiClientFactory factory(int maxAttempts, int failureThreshold) {
+        OpenAiChatModel defaultModel = OpenAiChatModel.builder()
+                .openAiApi(OpenAiApi.builder().apiKey("test-key").build())
+                .defaultOptions(OpenAiChatOptions.builder().model("gpt-4o-mini").build())
+                .build();
+        ModelCallScheduler scheduler = new ModelCallScheduler(false, 500, 200000, 0.2, Duration.ofMinutes(2), 1100, 800);
+        String baseUrl = server.url("/").toString().replaceAll("/$", "");
+        return new OpenAiClientFactory(baseUrl, "test-key", defaultModel, scheduler,
+                Duration.ofSeconds(2),
+                Duration.ofSeconds(5), Duration.ofSeconds(3), Duration.ofSeconds(5), Duration.ofMillis(300),
+                maxAttempts, INITIAL_BACKOFF, 2.0, Duration.ofSeconds(1),
+                failureThreshold, OPEN_DURATION);
+    }
+
+    private static String ask(OpenAiClientFactory factory, OpenAiClientFactory.CallType type) {
+        return factory.builder(type).build().prompt().user("hi").call().content();
+    }
+
+    private static MockResponse completion() {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(COMPLETION);
+    }
+
+    private static MockResponse error(int status) {
+        return new MockResponse().setResponseCode(status)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"error\":{\"message\":\"status " + status + "\"}}");
+    }
+
+    @Test
+    void rateLimitsAndServerErrorsAreRetriedWithBackoff() {
+        OpenAiClientFactory factory = factory(4, 10);
+        server.enqueue(error(429));
+        server.enqueue(error(503));
+        server.enqueue(completion());
+
+        long start = System.nanoTime();
+        assertThat(ask(factory, OpenAiClientFactory.CallType.CHAT)).isEqualTo("ok");
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(server.getRequestCount()).isEqualTo(3);
+        // Two backoffs: at least the initial one, then at least twice that
+        assertThat(elapsed).isGreaterThanOrEqualTo(INITIAL_BACKOFF.multipliedBy(3));
+    }
+
+    @Test
+    void retriesStopAfterMaxAttempts() {
+        OpenAiClientFactory factory = factory(3, 10);
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(error(500));
+        }
+
+        assertThatThrownBy(() -> ask(factory, OpenAiClientFactory.CallType.CHAT)).hasMessageContaining("500");
+        assertThat(server.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    void clientErrorsAreNotRetried() {
+        OpenAiClientFactory factory = factory(4, 10);
+        server.enqueue(error(400));
+        server.enqueue(completion());
+
+        assertThatThrownBy(() -> ask(factory, OpenAiClientFactory.CallType.CHAT))
+                .isInstanceOf(NonTransientAiException.class)
+                .hasMessageContaining("400");
+        assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void readTimeoutDependsOnTheCallType() {
+        OpenAiClientFactory factory = factory(1, 10);
+        server.enqueue(completion().setHeadersDelay(1, TimeUnit.SECONDS));
+        server.enqueue(completion().setHeadersDelay(1, TimeUnit.SECONDS));
+
+        // 300 ms for validation, 3 s for chat
+        assertThatThrownBy(() -> ask(factory, OpenAiClientFactory.CallType.VALIDATION))
+                .isInstanceOf(ResourceAccessException.class);
+        assertThat(ask(factory, OpenAiClientFactory.CallType.CHAT)).isEqualTo("ok");
+    }
+
+    @Test
+    void breakerOpensThenLetsOneTrialThroughAndCloses() throws InterruptedException {
+        OpenAiClientFactory factory = factory(1, 2);
+        server.enqueue(error(500));
+        server.enqueue(error(500));
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> ask(factory, OpenAiClientFactory.CallType.SEARCH)).hasMessageContaining("500");
+        }
+        assertThat(factory.snapshot().get("search")).containsEntry("state", "OPEN");
+
+        // Open: fails fast without reaching the server
+        assertThatThrownBy(() -> ask(factory, OpenAiClientFactory.CallType.SEARCH))
+                .isInstanceOf(ModelUnavailableException.class);
+        assertThat(server.getRequestCount()).isEqualTo(2);
+        // Other call types have their own breaker
+        server.enqueue(completion());
+        assertThat(ask(factory, OpenAiClientFactory.CallType.CHAT)).isEqualTo("ok");
+
+        // Half-open after the open duration: the trial call succeeds and closes the circuit
+        Thread.sleep(OPEN_DURATION.toMillis() + 50);
+        server.enqueue(completion());
+        assertThat(ask(factory, OpenAiClientFactory.CallType.SEARCH)).isEqualTo("ok");
+        assertThat(factory.snapshot().get("search")).containsEntry("state", "CLOSED").containsEntry("rejectedCalls", 1L);
+    }
+
+    @Test
+    void failedTrialReopensTheBreaker() throws InterruptedException {
+        OpenAiClientFactory factory = factory(1, 1);
+        server.enqueue(error(502));
+        assertThatThrownBy(() -> ask(factory, OpenAiClientFactory.CallType.CHAT)).hasMessageContaining("502");
+
+        Thread.sleep(OPEN_DURATION.toMillis() + 50);
+        server.enqueue(error(502));
+        assertThatThrownBy(() -> ask(factory, OpenAiClientFactory.CallType.CHAT)).hasMessageContaining("502");
+
+        assertThat(factory.snapshot().get("chat")).containsEntry("state", "OPEN");
+        assertThatThrownBy(() -> ask(factory, OpenAiClientFactory.CallType.CHAT))
+                .isInstanceOf(ModelUnavailableException.class);
+        assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+}
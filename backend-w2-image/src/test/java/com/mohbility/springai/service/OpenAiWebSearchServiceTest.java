@@ -0,0 +1,157 @@
+package com.mohbility.springai.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OpenAiWebSearchServiceTest {
+
+    private static final String REJECTION = "I can only answer questions related to U.S. federal taxes and IRS matters. Please ask a tax-related question.";
+    // No lexicon term either way, so only the validator model can decide
+    private static final String REJECTED_QUESTION = "Should I split rent with my roommate?";
+    private static final String ACCEPTED_QUESTION = "Do roommates report shared rent?";
+
+    private final PromptCacheMetrics promptCacheMetrics = mock(PromptCacheMetrics.class);
+    private final SemanticAnswerCache semanticAnswerCache = mock(SemanticAnswerCache.class);
+    /** Model calls in the order they were made: "search" or "validate". */
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private OpenAiWebSearchService service;
+
+    private OpenAiWebSearchService service(boolean speculativeSearch, int maxWastedSearchesPerMinute) throws IOException {
+        OpenAiClientFactory clientFactory = mock(OpenAiClientFactory.class);
+        ChatClient.Builder searchBuilder = mock(ChatClient.Builder.class);
+        ChatClient.Builder validationBuilder = mock(ChatClient.Builder.class);
+        when(clientFactory.builder(eq(OpenAiClientFactory.CallType.SEARCH), any(OpenAiChatOptions.class))).thenReturn(searchBuilder);
+        when(clientFactory.builder(eq(OpenAiClientFactory.CallType.VALIDATION), any(OpenAiChatOptions.class))).thenReturn(validationBuilder);
+        when(searchBuilder.build()).thenReturn(mock(ChatClient.class, RETURNS_DEEP_STUBS));
+        when(validationBuilder.build()).thenReturn(mock(ChatClient.class, RETURNS_DEEP_STUBS));
+        TaxRelevanceGate gate = new TaxRelevanceGate(true, new ClassPathResource("tax_relevance_terms.txt"),
+                new ClassPathResource("tax_offtopic_terms.txt"));
+
+        service = new OpenAiWebSearchService(clientFactory, new ByteArrayResource("You answer IRS questions.".getBytes()),
+                promptCacheMetrics, gate, semanticAnswerCache, 100, speculativeSearch, maxWastedSearchesPerMinute,
+                Duration.ofDays(1), Duration.ofHours(1), Duration.ofDays(7), Duration.ofDays(7), Duration.ofDays(1));
+        return service;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void rejectedQuestionCancelsTheRunningSearch() throws Exception {
+        CountDownLatch searchStarted = new CountDownLatch(1);
+        CountDownLatch searchInterrupted = new CountDownLatch(1);
+        when(promptCacheMetrics.content(eq("web-search"), ArgumentMatchers.<ChatResponse>any())).thenAnswer(call -> {
+            searchStarted.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                searchInterrupted.countDown();
+                throw e;
+            }
+            return "A search answer";
+        });
+        when(promptCacheMetrics.content(eq("tax-validation"), ArgumentMatchers.<ChatResponse>any())).thenAnswer(call -> {
+            // Reject only once the speculative search is under way
+            searchStarted.await(5, TimeUnit.SECONDS);
+            return "NO";
+        });
+
+        String answer = service(true, 10).queryIRS2025(REJECTED_QUESTION);
+
+        assertThat(answer).isEqualTo(REJECTION);
+        assertThat(searchInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        verify(semanticAnswerCache, never()).put(anyString(), anyString());
+    }
+
+    @Test
+    void acceptedQuestionUsesTheSpeculativeSearch() throws Exception {
+        answerSearch();
+        answerValidation("YES");
+
+        String answer = service(true, 10).queryIRS2025(ACCEPTED_QUESTION);
+
+        assertThat(answer).isEqualTo("A search answer");
+        assertThat(calls).containsExactlyInAnyOrder("search", "validate");
+        verify(semanticAnswerCache).put(ACCEPTED_QUESTION, "A search answer");
+    }
+
+    @Test
+    void speculationStopsOnceTheWasteCapIsHit() throws Exception {
+        CountDownLatch searchStarted = new CountDownLatch(1);
+        when(promptCacheMetrics.content(eq("web-search"), ArgumentMatchers.<ChatResponse>any())).thenAnswer(call -> {
+            calls.add("search");
+            searchStarted.countDown();
+            return "A search answer";
+        });
+        when(promptCacheMetrics.content(eq("tax-validation"), ArgumentMatchers.<ChatResponse>any())).thenAnswer(call -> {
+            searchStarted.await(5, TimeUnit.SECONDS);
+            calls.add("validate");
+            return "NO";
+        });
+        OpenAiWebSearchService service = service(true, 1);
+
+        assertThat(service.queryIRS2025(REJECTED_QUESTION)).isEqualTo(REJECTION);
+        assertThat(calls).containsExactly("search", "validate");
+        calls.clear();
+
+        // The cap of one wasted search is reached: the next question is validated before any search
+        assertThat(service.queryIRS2025("How do roommates share utilities?")).isEqualTo(REJECTION);
+        assertThat(calls).containsExactly("validate");
+    }
+
+    @Test
+    void withoutSpeculationTheSearchWaitsForTheValidator() throws Exception {
+        answerSearch();
+        answerValidation("YES");
+        OpenAiWebSearchService service = service(false, 10);
+
+        assertThat(service.queryIRS2025(ACCEPTED_QUESTION)).isEqualTo("A search answer");
+        assertThat(calls).containsExactly("validate", "search");
+
+        answerValidation("NO");
+        calls.clear();
+        assertThat(service.queryIRS2025(REJECTED_QUESTION)).isEqualTo(REJECTION);
+        assertThat(calls).containsExactly("validate");
+    }
+
+    private void answerSearch() {
+        when(promptCacheMetrics.content(eq("web-search"), ArgumentMatchers.<ChatResponse>any())).thenAnswer(call -> {
+            calls.add("search");
+            return "A search answer";
+        });
+    }
+
+    private void answerValidation(String verdict) {
+        when(promptCacheMetrics.content(eq("tax-validation"), ArgumentMatchers.<ChatResponse>any())).thenAnswer(call -> {
+            calls.add("validate");
+            return verdict;
+        });
+    }
+}
@@ -0,0 +1,118 @@
+package com.mohbility.springai.service;
+
+import com.mohbility.springai.service.PagePreClassifier.PageFilter;
+import com.mohbility.springai.service.PagePreClassifier.PageLabel;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PagePreClassifierTest {
+
+    private static final String W2_TEXT = "Form W-2 Wage and Tax Statement 2025\n"
+            + "b Employer identification number 12-3456789\n"
+            + "a Employee's social security number XXX-XX-1234\n"
+            + "1 Wages, tips, other compensation 52,000.00  2 Federal income tax withheld 6,100.50";
+    private static final String NEC_TEXT = "Form 1099-NEC Nonemployee Compensation\n"
+            + "PAYER'S TIN 98-7654321  RECIPIENT'S TIN XXX-XX-4321\n"
+            + "1 Nonemployee compensation 12,500.00";
+    private static final String INSTRUCTIONS_TEXT = "Notice to Employee\n"
+            + "Instructions for Employee. Box 12 codes are explained below.\n"
+            + "Future developments: for the latest information go to the IRS website.";
+
+    private final PagePreClassifier classifier = new PagePreClassifier(true, 0.004, 24);
+
+    @Test
+    void blankPagesAreDropped() {
+        BufferedImage blank = image(0);
+
+        assertThat(classifier.newDocument().classify(blank, "", PerceptualHash.of(blank))).isEqualTo(PageLabel.BLANK);
+        assertThat(PageLabel.BLANK.isForwarded()).isFalse();
+    }
+
+    @Test
+    void formsAreLabelledFromTheTextLayer() {
+        PageFilter filter = classifier.newDocument();
+        BufferedImage page = image(1);
+
+        assertThat(filter.classify(page, W2_TEXT, PerceptualHash.of(page))).isEqualTo(PageLabel.W2);
+        assertThat(filter.classify(page, NEC_TEXT, PerceptualHash.of(page))).isEqualTo(PageLabel.NEC_1099);
+        assertThat(filter.classify(page, "Statement of account 1,234.56", PerceptualHash.of(page))).isEqualTo(PageLabel.UNKNOWN);
+    }
+
+    @Test
+    void instructionBacksAreDropped() {
+        BufferedImage page = image(1);
+
+        assertThat(classifier.newDocument().classify(page, INSTRUCTIONS_TEXT, PerceptualHash.of(page)))
+                .isEqualTo(PageLabel.INSTRUCTIONS);
+        // Instruction headings on a page that also carries values are not an instruction back
+        assertThat(classifier.newDocument().classify(page, INSTRUCTIONS_TEXT + "\n" + W2_TEXT, PerceptualHash.of(page)))
+                .isEqualTo(PageLabel.W2);
+    }
+
+    @Test
+    void copiesWithTheSameValuesAreDuplicates() {
+        PageFilter filter = classifier.newDocument();
+        BufferedImage copyB = image(1);
+        BufferedImage copyC = image(2);
+
+        assertThat(filter.classify(copyB, W2_TEXT, PerceptualHash.of(copyB))).isEqualTo(PageLabel.W2);
+        assertThat(filter.classify(copyC, "Copy C " + W2_TEXT, PerceptualHash.of(copyC))).isEqualTo(PageLabel.DUPLICATE);
+        // A new document starts with nothing forwarded
+        assertThat(classifier.newDocument().classify(copyC, W2_TEXT, PerceptualHash.of(copyC))).isEqualTo(PageLabel.W2);
+    }
+
+    @Test
+    void scansWithoutTextAreDuplicatesOnlyWhenNearIdentical() {
+        PageFilter filter = classifier.newDocument();
+        BufferedImage scan = image(1);
+        BufferedImage otherScan = image(2);
+
+        assertThat(filter.classify(scan, "", PerceptualHash.of(scan))).isEqualTo(PageLabel.UNKNOWN);
+        assertThat(filter.classify(otherScan, "", PerceptualHash.of(otherScan))).isEqualTo(PageLabel.UNKNOWN);
+        assertThat(filter.classify(scan, "", PerceptualHash.of(scan))).isEqualTo(PageLabel.DUPLICATE);
+    }
+
+    @Test
+    void disabledTriageForwardsEverything() {
+        PagePreClassifier disabled = new PagePreClassifier(false, 0.004, 24);
+        BufferedImage blank = image(0);
+
+        assertThat(disabled.newDocument().classify(blank, "", PerceptualHash.of(blank))).isEqualTo(PageLabel.UNKNOWN);
+    }
+
+    @Test
+    void formValuesAreAmountsAndIdentifiers() {
+        assertThat(PagePreClassifier.hasFormValues("1 Wages 52,000.00")).isTrue();
+        assertThat(PagePreClassifier.hasFormValues("EIN 12-3456789")).isTrue();
+        assertThat(PagePreClassifier.hasFormValues("SSN xxx-xx-1234")).isTrue();
+        assertThat(PagePreClassifier.hasFormValues("1 Wages, tips, other compensation")).isFalse();
+        assertThat(PagePreClassifier.hasFormValues(null)).isFalse();
+    }
+
+    /** A white page, or for a non-zero seed a page with a random pattern of dark blocks. */
+    private static BufferedImage image(long seed) {
+        BufferedImage image = new BufferedImage(640, 800, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        if (seed != 0) {
+            Random random = new Random(seed);
+            g.setColor(Color.DARK_GRAY);
+            for (int y = 0; y < image.getHeight(); y += 40) {
+                for (int x = 0; x < image.getWidth(); x += 40) {
+                    if (random.nextInt(3) == 0) {
+                        g.fillRect(x, y, 40, 40);
+                    }
+                }
+            }
+        }
+        g.dispose();
+        return image;
+    }
+}
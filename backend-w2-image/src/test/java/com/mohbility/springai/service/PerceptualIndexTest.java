@@ -0,0 +1,82 @@
+package com.mohbility.springai.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PerceptualIndexTest {
+
+    private static final int MAX_DISTANCE = 16;
+
+    private final long[] base = randomHash(42);
+
+    @Test
+    void findsHashesAtExactlyTheMaxDistance() {
+        PerceptualIndex<String> index = new PerceptualIndex<>(MAX_DISTANCE);
+        index.add(base, "first");
+
+        // One flip per band in the first 16 bands, so only the last band still matches
+        long[] near = flipSpread(base, MAX_DISTANCE, MAX_DISTANCE + 1);
+        assertThat(PerceptualHash.distance(base, near)).isEqualTo(MAX_DISTANCE);
+        assertThat(index.findNear(near)).contains("first");
+    }
+
+    @Test
+    void missesHashesOneBitBeyondTheMaxDistance() {
+        PerceptualIndex<String> index = new PerceptualIndex<>(MAX_DISTANCE);
+        index.add(base, "first");
+
+        long[] clustered = flipRange(base, 0, MAX_DISTANCE + 1);
+        long[] spread = flipSpread(base, MAX_DISTANCE + 1, MAX_DISTANCE + 1);
+        assertThat(PerceptualHash.distance(base, clustered)).isEqualTo(MAX_DISTANCE + 1);
+        assertThat(PerceptualHash.distance(base, spread)).isEqualTo(MAX_DISTANCE + 1);
+        assertThat(index.findNear(clustered)).isEmpty();
+        assertThat(index.findNear(spread)).isEmpty();
+    }
+
+    @Test
+    void zeroDistanceOnlyMatchesIdenticalHashes() {
+        PerceptualIndex<String> index = new PerceptualIndex<>(0);
+        index.add(base, "first");
+
+        assertThat(index.findNear(base.clone())).contains("first");
+        assertThat(index.findNear(flipRange(base, 100, 1))).isEmpty();
+    }
+
+    @Test
+    void unrelatedHashesAreNotMatched() {
+        PerceptualIndex<String> index = new PerceptualIndex<>(MAX_DISTANCE);
+        index.add(base, "first");
+
+        assertThat(index.findNear(randomHash(7))).isEmpty();
+    }
+
+    private static long[] randomHash(long seed) {
+        Random random = new Random(seed);
+        long[] hash = new long[PerceptualHash.BITS / 64];
+        for (int i = 0; i < hash.length; i++) {
+            hash[i] = random.nextLong();
+        }
+        return hash;
+    }
+
+    private static long[] flipRange(long[] hash, int from, int count) {
+        long[] flipped = hash.clone();
+        for (int bit = from; bit < from + count; bit++) {
+            flipped[bit / 64] ^= 1L << (bit % 64);
+        }
+        return flipped;
+    }
+
+    /** Flips the first bit of each of the first {@code count} of {@code bands} equal bands. */
+    private static long[] flipSpread(long[] hash, int count, int bands) {
+        long[] flipped = hash.clone();
+        for (int band = 0; band < count; band++) {
+            int bit = band * PerceptualHash.BITS / bands;
+            flipped[bit / 64] ^= 1L << (bit % 64);
+        }
+        return flipped;
+    }
+}
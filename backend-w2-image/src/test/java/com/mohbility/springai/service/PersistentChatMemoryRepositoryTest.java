@@ -0,0 +1,96 @@
+package com.mohbility.springai.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersistentChatMemoryRepositoryTest {
+
+    private static final List<Message> TURN = List.of(new UserMessage("Is my W-2 complete?"), new AssistantMessage("Yes."));
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private PersistentChatMemoryRepository repository(String dir, int maxCached) throws IOException {
+        return new PersistentChatMemoryRepository(objectMapper, dir, Duration.ofDays(30), maxCached);
+    }
+
+    @Test
+    void conversationsSurviveARestart(@TempDir Path dir) throws IOException {
+        repository(dir.toString(), 10).saveAll("s1:Jane", TURN);
+
+        PersistentChatMemoryRepository restarted = repository(dir.toString(), 10);
+
+        assertThat(restarted.findByConversationId("s1:Jane")).extracting(Message::getText)
+                .containsExactly("Is my W-2 complete?", "Yes.");
+        assertThat(restarted.findConversationIds()).containsExactly("s1:Jane");
+    }
+
+    @Test
+    void evictKeepsTheStoredConversation(@TempDir Path dir) throws IOException {
+        PersistentChatMemoryRepository repository = repository(dir.toString(), 10);
+        repository.saveAll("s1:Jane", TURN);
+
+        repository.evict("s1:Jane");
+
+        assertThat(repository.findByConversationId("s1:Jane")).hasSize(2);
+    }
+
+    @Test
+    void deleteRemovesTheStoredConversation(@TempDir Path dir) throws IOException {
+        PersistentChatMemoryRepository repository = repository(dir.toString(), 10);
+        repository.saveAll("s1:Jane", TURN);
+
+        repository.deleteByConversationId("s1:Jane");
+
+        assertThat(repository.findByConversationId("s1:Jane")).isEmpty();
+        assertThat(repository(dir.toString(), 10).findByConversationId("s1:Jane")).isEmpty();
+    }
+
+    @Test
+    void memoryOnlyStoreIsBounded() throws IOException {
+        PersistentChatMemoryRepository repository = repository("", 2);
+        repository.saveAll("a", TURN);
+        repository.saveAll("b", TURN);
+        repository.findByConversationId("a");
+        repository.saveAll("c", TURN);
+        repository.findByConversationId("never-saved");
+
+        assertThat(repository.findConversationIds()).containsExactlyInAnyOrder("a", "c");
+    }
+
+    @Test
+    void boundedCacheReloadsEvictedConversationsFromDisk(@TempDir Path dir) throws IOException {
+        PersistentChatMemoryRepository repository = repository(dir.toString(), 1);
+        repository.saveAll("a", TURN);
+        repository.saveAll("b", TURN);
+
+        assertThat(repository.findByConversationId("a")).hasSize(2);
+    }
+
+    @Test
+    void purgeRemovesConversationsPastRetention(@TempDir Path dir) throws IOException {
+        PersistentChatMemoryRepository repository = repository(dir.toString(), 10);
+        repository.saveAll("old", TURN);
+        repository.saveAll("recent", TURN);
+        Files.setLastModifiedTime(dir.resolve(ExtractionResultCache.sha256("old") + ".json"),
+                FileTime.from(Instant.now().minus(Duration.ofDays(31))));
+
+        repository.purgeExpired();
+
+        assertThat(repository.findByConversationId("old")).isEmpty();
+        assertThat(repository.findByConversationId("recent")).hasSize(2);
+    }
+}
@@ -0,0 +1,97 @@
+package com.mohbility.springai.service;
+
+import com.mohbility.springai.model.TaxDocumentResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RecipientAggregateTest {
+
+    @Test
+    void totalsCombineW2AndNecAmounts() {
+        RecipientAggregate aggregate = new RecipientAggregate("Jane Doe");
+        aggregate.add(w2(52000.00, 6100.50));
+        aggregate.add(nec(12500.00, 1000.00));
+
+        assertThat(aggregate.getDocumentCount()).isEqualTo(2);
+        assertThat(aggregate.getTotalIncome()).isCloseTo(64500.00, within(0.001));
+        assertThat(aggregate.getTotalFederalTax()).isCloseTo(7100.50, within(0.001));
+        assertThat(aggregate.getTotalSSWages()).isCloseTo(52000.00, within(0.001));
+        assertThat(aggregate.getTotalStateIncome()).isCloseTo(52000.00, within(0.001));
+        assertThat(aggregate.getTotalStateTax()).isCloseTo(2400.00, within(0.001));
+    }
+
+    @Test
+    void missingAmountsCountAsZero() {
+        RecipientAggregate aggregate = new RecipientAggregate("Jane Doe");
+        TaxDocumentResult empty = new TaxDocumentResult();
+        empty.setDocument_type("W2");
+        aggregate.add(empty);
+
+        assertThat(aggregate.getTotalIncome()).isZero();
+        assertThat(aggregate.getDocumentSummary()).contains("Document #1 (W2)").contains("Payer: N/A");
+    }
+
+    @Test
+    void summaryListsEachDocumentInOrder() {
+        RecipientAggregate aggregate = new RecipientAggregate("Jane Doe");
+        aggregate.add(w2(52000.00, 6100.50));
+        aggregate.add(nec(12500.00, 1000.00));
+
+        String summary = aggregate.getDocumentSummary();
+        assertThat(summary).contains("Document #1 (W2)", "Payer: Acme Payroll", "Document #2 (1099-NEC)", "Nonemployee Compensation");
+        assertThat(summary.indexOf("Document #1")).isLessThan(summary.indexOf("Document #2"));
+    }
+
+    @Test
+    void systemPromptIsRenderedOnceUntilDocumentsChange() {
+        RecipientAggregate aggregate = new RecipientAggregate("Jane Doe");
+        aggregate.add(w2(52000.00, 6100.50));
+        AtomicInteger renders = new AtomicInteger();
+
+        String first = aggregate.systemPrompt(a -> "prompt " + renders.incrementAndGet() + " for " + a.getDocumentCount());
+        String second = aggregate.systemPrompt(a -> "prompt " + renders.incrementAndGet() + " for " + a.getDocumentCount());
+        assertThat(first).isEqualTo("prompt 1 for 1").isSameAs(second);
+
+        aggregate.add(nec(12500.00, 1000.00));
+        assertThat(aggregate.systemPrompt(a -> "prompt " + renders.incrementAndGet() + " for " + a.getDocumentCount()))
+                .isEqualTo("prompt 2 for 2");
+    }
+
+    @Test
+    void documentsAreReturnedAsASnapshot() {
+        RecipientAggregate aggregate = new RecipientAggregate("Jane Doe");
+        aggregate.add(w2(52000.00, 6100.50));
+
+        var documents = aggregate.getDocuments();
+        aggregate.add(nec(12500.00, 1000.00));
+
+        assertThat(documents).hasSize(1);
+        assertThat(aggregate.getDocuments()).hasSize(2);
+    }
+
+    private static TaxDocumentResult w2(double wages, double withheld) {
+        TaxDocumentResult doc = new TaxDocumentResult();
+        doc.setDocument_type("W2");
+        doc.setPayer_name("Acme Payroll");
+        doc.setWages_box1(wages);
+        doc.setFederal_income_tax_withheld_box2(withheld);
+        doc.setSocial_security_wages_box3(wages);
+        doc.setMedicare_wages_box5(wages);
+        doc.setState_wages(wages);
+        doc.setState_income_tax(2400.00);
+        return doc;
+    }
+
+    private static TaxDocumentResult nec(double compensation, double withheld) {
+        TaxDocumentResult doc = new TaxDocumentResult();
+        doc.setDocument_type("1099-NEC");
+        doc.setPayer_name("Client LLC");
+        doc.setNonemployee_compensation_box1(compensation);
+        doc.setFederal_income_tax_withheld_box4(withheld);
+        return doc;
+    }
+}
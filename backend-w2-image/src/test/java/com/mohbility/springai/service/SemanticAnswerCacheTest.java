@@ -0,0 +1,92 @@
+package com.mohbility.springai.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SemanticAnswerCacheTest {
+
+    private static final String BRACKETS = "What are the 2025 tax brackets for single filers?";
+    private static final String EITC_JOINTLY = "For tax year 2025 what is the standard deduction and the income limit for "
+            + "the earned income credit when married filing jointly with two qualifying children?";
+    private static final String EITC_SEPARATELY = "For tax year 2025 what is the standard deduction and the income limit for "
+            + "the earned income credit when married filing separately with two qualifying children?";
+
+    private final HashingTextEmbedder embedder = new HashingTextEmbedder(512);
+
+    private SemanticAnswerCache cache(Duration ttl, int maxEntries) {
+        return new SemanticAnswerCache(embedder, true, 0.9, ttl, maxEntries);
+    }
+
+    @Test
+    void rewordedQuestionHitsTheCachedAnswer() {
+        SemanticAnswerCache cache = cache(Duration.ofHours(12), 100);
+        cache.put(BRACKETS, "brackets answer");
+
+        assertThat(cache.find("What are the tax brackets for single filers in 2025?")).contains("brackets answer");
+        assertThat(cache.snapshot()).containsEntry("lookups", 1L).containsEntry("hits", 1L);
+    }
+
+    @Test
+    void questionDifferingInAFilingStatusMisses() {
+        // Lexically almost identical: the embeddings alone clear the threshold
+        assertThat(HashingTextEmbedder.cosine(embedder.embed(EITC_JOINTLY), embedder.embed(EITC_SEPARATELY)))
+                .isGreaterThan(0.9);
+
+        SemanticAnswerCache cache = cache(Duration.ofHours(12), 100);
+        cache.put(EITC_JOINTLY, "jointly answer");
+
+        assertThat(cache.find(EITC_SEPARATELY)).isEmpty();
+        assertThat(cache.find(EITC_JOINTLY)).contains("jointly answer");
+    }
+
+    @Test
+    void questionAboutAnotherYearMisses() {
+        SemanticAnswerCache cache = cache(Duration.ofHours(12), 100);
+        cache.put("What is the standard deduction for 2025?", "2025 answer");
+
+        assertThat(cache.find("What is the standard deduction for 2024?")).isEmpty();
+        assertThat(cache.find("What is the standard deduction?")).isEmpty();
+    }
+
+    @Test
+    void keyTermsCoverNumbersFormsAndFilingStatus() {
+        assertThat(SemanticAnswerCache.keyTerms("Do I need Form W-2 for 2025 if married filing jointly?"))
+                .containsExactly("2025", "jointly", "married", "w2");
+    }
+
+    @Test
+    void expiredEntriesAreNotReturned() throws InterruptedException {
+        SemanticAnswerCache cache = cache(Duration.ofMillis(1), 100);
+        cache.put(BRACKETS, "brackets answer");
+        Thread.sleep(20);
+
+        assertThat(cache.find(BRACKETS)).isEmpty();
+        assertThat(cache.snapshot()).containsEntry("entries", 0);
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        SemanticAnswerCache cache = cache(Duration.ofHours(12), 2);
+        cache.put("What is the standard deduction for 2025?", "deduction");
+        cache.put("When are Q3 estimated payments due?", "q3");
+        assertThat(cache.find("What is the standard deduction for 2025?")).contains("deduction");
+
+        cache.put(BRACKETS, "brackets");
+
+        assertThat(cache.find("When are Q3 estimated payments due?")).isEmpty();
+        assertThat(cache.find("What is the standard deduction for 2025?")).contains("deduction");
+        assertThat(cache.find(BRACKETS)).contains("brackets");
+        assertThat(cache.snapshot()).containsEntry("entries", 2).containsEntry("evictions", 1L);
+    }
+
+    @Test
+    void disabledCacheStoresNothing() {
+        SemanticAnswerCache cache = new SemanticAnswerCache(embedder, false, 0.9, Duration.ofHours(12), 100);
+        cache.put(BRACKETS, "brackets answer");
+
+        assertThat(cache.find(BRACKETS)).isEmpty();
+    }
+}
@@ -0,0 +1,92 @@
+package com.mohbility.springai.service;
+
+import com.mohbility.springai.model.TaxDocumentResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class TaxDocumentCacheServiceTest {
+
+    private final CompactingChatMemory chatMemory = mock(CompactingChatMemory.class);
+
+    @Test
+    void idleEvictionKeepsTheStoredConversations() throws InterruptedException {
+        TaxDocumentCacheService service = new TaxDocumentCacheService(chatMemory, 10, Duration.ofMillis(1), 16);
+        service.cache("s1", document("Jane Doe"));
+        Thread.sleep(20);
+
+        service.evictIdleSessions();
+
+        verify(chatMemory).release("s1:Jane Doe");
+        verify(chatMemory).release("s1:" + GeneralChatService.CONVERSATION_NAME);
+        verify(chatMemory, never()).clear(anyString());
+        assertThat(service.exists("s1", "Jane Doe")).isFalse();
+    }
+
+    @Test
+    void overflowEvictionKeepsTheStoredConversations() {
+        TaxDocumentCacheService service = new TaxDocumentCacheService(chatMemory, 1, Duration.ofHours(2), 16);
+        service.cache("s1", document("Jane Doe"));
+
+        service.cache("s2", document("John Roe"));
+
+        verify(chatMemory).release("s1:Jane Doe");
+        verify(chatMemory, never()).clear(anyString());
+    }
+
+    @Test
+    void clearingASessionDeletesItsConversations() {
+        TaxDocumentCacheService service = new TaxDocumentCacheService(chatMemory, 10, Duration.ofHours(2), 16);
+        service.cache("s1", document("Jane Doe"));
+
+        service.clear("s1");
+
+        verify(chatMemory).clear("s1:Jane Doe");
+        verify(chatMemory).clear("s1:" + GeneralChatService.CONVERSATION_NAME);
+        assertThat(service.exists("s1", "Jane Doe")).isFalse();
+    }
+
+    @Test
+    void sessionsDoNotSeeEachOthersDocuments() {
+        TaxDocumentCacheService service = new TaxDocumentCacheService(chatMemory, 10, Duration.ofHours(2), 16);
+        service.cache("s1", document("Jane Doe"));
+        service.cache("s2", document("John Roe"));
+
+        service.clear("s1");
+
+        assertThat(service.exists("s2", "Jane Doe")).isFalse();
+        assertThat(service.exists("s2", "John Roe")).isTrue();
+        verify(chatMemory, never()).clear("s2:John Roe");
+    }
+
+    @Test
+    void resultsOfAnExtractionStartedBeforeAClearAreDropped() {
+        TaxDocumentCacheService service = new TaxDocumentCacheService(chatMemory, 10, Duration.ofHours(2), 16);
+        DocumentIndex earlierJob = service.documentIndex("s1");
+        service.clear("s1");
+        DocumentIndex currentUpload = service.documentIndex("s1");
+
+        service.cache("s1", earlierJob, document("Jane Doe"));
+        service.setExportDocuments("s1", earlierJob, List.of(document("Jane Doe")));
+        service.cache("s1", currentUpload, document("John Roe"));
+
+        assertThat(service.exists("s1", "Jane Doe")).isFalse();
+        assertThat(service.exists("s1", "John Roe")).isTrue();
+        assertThat(service.getExportDocuments("s1")).isEmpty();
+    }
+
+    static TaxDocumentResult document(String recipientName) {
+        TaxDocumentResult result = new TaxDocumentResult();
+        result.setDocument_type("W2");
+        result.setRecipient_name(recipientName);
+        result.setWages_box1(52000.00);
+        return result;
+    }
+}
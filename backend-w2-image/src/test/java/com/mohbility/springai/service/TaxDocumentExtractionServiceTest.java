@@ -0,0 +1,226 @@
+package com.mohbility.springai.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mohbility.springai.exception.TaxDocumentException;
+import com.mohbility.springai.model.ExtractionOutcome;
+import com.mohbility.springai.model.TaxDocumentResult;
+import com.mohbility.springai.service.DocumentDecoder.DecodedDocument;
+import com.mohbility.springai.service.DocumentDecoder.DecodedPage;
+import com.mohbility.springai.service.ImagePreprocessor.PreparedImage;
+import com.mohbility.springai.service.PacketSegmenter.FormPages;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ResponseEntity;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TaxDocumentExtractionServiceTest {
+
+    /** Over the 200-character minimum, with amounts and an EIN. */
+    private static final String FILLED_IN_TEXT = "Form W-2 Wage and Tax Statement 2024\n"
+            + "Employer identification number 12-3456789\n"
+            + "Employer's name Acme Corp\n"
+            + "1 Wages, tips, other compensation 52,000.00\n"
+            + "2 Federal income tax withheld 6,100.00\n"
+            + "3 Social security wages 52,000.00\n";
+
+    private final ChatClient chatClient = mock(ChatClient.class, RETURNS_DEEP_STUBS);
+    private final DocumentDecoder documentDecoder = mock(DocumentDecoder.class);
+    private final PacketSegmenter packetSegmenter = mock(PacketSegmenter.class);
+    private final AtomicInteger preparedImages = new AtomicInteger();
+    private ExtractionResultCache extractionResultCache;
+    private TaxDocumentExtractionService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(packetSegmenter.segment(any(), anyString()))
+                .thenAnswer(call -> List.of(new FormPages(null, call.<DecodedDocument>getArgument(0).pages())));
+        service = service(true);
+    }
+
+    private TaxDocumentExtractionService service(boolean textLayerEnabled) throws IOException {
+        OpenAiClientFactory clientFactory = mock(OpenAiClientFactory.class, RETURNS_DEEP_STUBS);
+        when(clientFactory.builder(OpenAiClientFactory.CallType.EXTRACTION).build()).thenReturn(chatClient);
+        extractionResultCache = spy(new ExtractionResultCache(new ObjectMapper(), 100, Duration.ofHours(1), null));
+        return new TaxDocumentExtractionService(
+                clientFactory,
+                new ByteArrayResource("Extract the form.".getBytes()),
+                new ByteArrayResource("Use the text layer.".getBytes()),
+                textLayerEnabled,
+                200,
+                extractionResultCache,
+                documentDecoder,
+                new ImagePreprocessor(72, 4_000_000, 6_000_000, 0.85f, 1000, 512),
+                new PreviewStore(1_000_000),
+                packetSegmenter,
+                new PagePreClassifier(true, 0.004, 24),
+                mock(PromptCacheMetrics.class),
+                3);
+    }
+
+    @Test
+    void sameFileUploadedTwiceWithAnIncompleteKeyIsCountedOnce() throws IOException {
+        // No EIN: the semantic key is null, so only the file digest can spot the repeat
+        TaxDocumentResult incomplete = new TaxDocumentResult();
+        incomplete.setDocument_type("W2");
+        incomplete.setPayer_name("Acme");
+        incomplete.setWages_box1(52000.00);
+        answerFromImages(incomplete);
+        when(documentDecoder.decode(any())).thenReturn(scannedPage());
+        DocumentIndex index = new DocumentIndex("session", 16);
+        MockMultipartFile file = new MockMultipartFile("file", "w2.jpg", "image/jpeg", new byte[]{1, 2, 3, 4});
+
+        ExtractionOutcome first = service.extractFromFile(file, index);
+        ExtractionOutcome second = service.extractFromFile(file, index);
+
+        assertThat(first.isSuccess()).isTrue();
+        assertThat(first.getResult().getWages_box1()).isEqualTo(52000.00);
+        assertThat(second.isSuccess()).isFalse();
+        assertThat(second.getError()).isEqualTo("Duplicate of a document already uploaded");
+        verify(documentDecoder, times(1)).decode(any());
+        verify(extractionResultCache, times(1)).get(anyString());
+    }
+
+    @Test
+    void failedExtractionCanBeRetried() throws IOException {
+        TaxDocumentResult result = new TaxDocumentResult();
+        result.setDocument_type("W2");
+        result.setPayer_name("Acme");
+        result.setWages_box1(52000.00);
+        answerFromImages(result);
+        when(documentDecoder.decode(any())).thenThrow(new IOException("truncated upload")).thenReturn(scannedPage());
+        DocumentIndex index = new DocumentIndex("session", 16);
+        MockMultipartFile file = new MockMultipartFile("file", "w2.jpg", "image/jpeg", new byte[]{1, 2, 3, 4});
+
+        assertThatThrownBy(() -> service.extractFromFile(file, index)).isInstanceOf(TaxDocumentException.class);
+        assertThat(service.extractFromFile(file, index).isSuccess()).isTrue();
+    }
+
+    @Test
+    void textLayerAnswerLeavesPageImagesUnprepared() throws IOException {
+        answerFromText(w2("From text", 52000.00));
+        answerFromImages(w2("From images", 52000.00));
+        when(documentDecoder.decode(any())).thenReturn(textPages(FILLED_IN_TEXT));
+
+        ExtractionOutcome outcome = service.extractFromFile(pdf(), new DocumentIndex("session", 16));
+
+        assertThat(outcome.getResult().getPayer_name()).isEqualTo("From text");
+        assertThat(preparedImages).hasValue(0);
+    }
+
+    @Test
+    void incompleteTextLayerResultFallsBackToPageImages() throws IOException {
+        answerFromText(w2("From text", null));
+        answerFromImages(w2("From images", 52000.00));
+        when(documentDecoder.decode(any())).thenReturn(textPages(FILLED_IN_TEXT));
+
+        ExtractionOutcome outcome = service.extractFromFile(pdf(), new DocumentIndex("session", 16));
+
+        assertThat(outcome.getResult().getPayer_name()).isEqualTo("From images");
+        assertThat(preparedImages).hasValue(1);
+    }
+
+    @Test
+    void shortTextLayerIsNotUsed() throws IOException {
+        answerFromText(w2("From text", 52000.00));
+        answerFromImages(w2("From images", 52000.00));
+        when(documentDecoder.decode(any())).thenReturn(textPages("Wages 52,000.00"));
+
+        ExtractionOutcome outcome = service.extractFromFile(pdf(), new DocumentIndex("session", 16));
+
+        assertThat(outcome.getResult().getPayer_name()).isEqualTo("From images");
+    }
+
+    @Test
+    void textLayerIsOnlyUsedWhenEveryPageHasFormValues() throws IOException {
+        answerFromText(w2("From text", 52000.00));
+        answerFromImages(w2("From images", 52000.00));
+        when(documentDecoder.decode(any())).thenReturn(textPages(FILLED_IN_TEXT, "Form W-2 Wage and Tax Statement " + "x".repeat(200)));
+
+        ExtractionOutcome outcome = service.extractFromFile(pdf(), new DocumentIndex("session", 16));
+
+        assertThat(outcome.getResult().getPayer_name()).isEqualTo("From images");
+    }
+
+    @Test
+    void disabledTextLayerIsNotUsed() throws IOException {
+        TaxDocumentExtractionService service = service(false);
+        answerFromText(w2("From text", 52000.00));
+        answerFromImages(w2("From images", 52000.00));
+        when(documentDecoder.decode(any())).thenReturn(textPages(FILLED_IN_TEXT));
+
+        ExtractionOutcome outcome = service.extractFromFile(pdf(), new DocumentIndex("session", 16));
+
+        assertThat(outcome.getResult().getPayer_name()).isEqualTo("From images");
+    }
+
+    private void answerFromText(TaxDocumentResult result) {
+        when(chatClient.prompt()
+                .system(anyString())
+                .user(anyString())
+                .advisors(ArgumentMatchers.<Consumer<ChatClient.AdvisorSpec>>any())
+                .call()
+                .responseEntity(TaxDocumentResult.class))
+                .thenReturn(new ResponseEntity<>(null, result));
+    }
+
+    private void answerFromImages(TaxDocumentResult result) {
+        when(chatClient.prompt()
+                .system(anyString())
+                .user(ArgumentMatchers.<Consumer<ChatClient.PromptUserSpec>>any())
+                .advisors(ArgumentMatchers.<Consumer<ChatClient.AdvisorSpec>>any())
+                .call()
+                .responseEntity(TaxDocumentResult.class))
+                .thenReturn(new ResponseEntity<>(null, result));
+    }
+
+    private static TaxDocumentResult w2(String payerName, Double wages) {
+        TaxDocumentResult result = new TaxDocumentResult();
+        result.setDocument_type("W2");
+        result.setPayer_name(payerName);
+        result.setWages_box1(wages);
+        return result;
+    }
+
+    private static MockMultipartFile pdf() {
+        return new MockMultipartFile("file", "w2.pdf", "application/pdf", new byte[]{5, 6, 7, 8});
+    }
+
+    /** One deferred page per text, counting how many page images get prepared. */
+    private DecodedDocument textPages(String... texts) {
+        PreparedImage image = new PreparedImage(new byte[]{9, 9, 9}, MimeTypeUtils.IMAGE_JPEG, 4);
+        List<DecodedPage> pages = Arrays.stream(texts)
+                .map(text -> DecodedPage.deferred(() -> {
+                    preparedImages.incrementAndGet();
+                    return image;
+                }, text, null, null))
+                .toList();
+        return new DecodedDocument(pages, null);
+    }
+
+    private static DecodedDocument scannedPage() {
+        PreparedImage image = new PreparedImage(new byte[]{9, 9, 9}, MimeTypeUtils.IMAGE_JPEG, 4);
+        return new DecodedDocument(List.of(new DecodedPage(image, "", null, null)), null);
+    }
+}
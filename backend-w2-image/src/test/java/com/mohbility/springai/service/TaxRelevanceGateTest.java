@@ -0,0 +1,92 @@
+package com.mohbility.springai.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaxRelevanceGateTest {
+
+    private final TaxRelevanceGate gate = newGate(true);
+
+    private static TaxRelevanceGate newGate(boolean enabled) {
+        try {
+            return new TaxRelevanceGate(enabled, new ClassPathResource("tax_relevance_terms.txt"),
+                    new ClassPathResource("tax_offtopic_terms.txt"));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "What is FICA?",
+            "2025 mileage rate",
+            "when are Q3 estimated payments due?",
+            "do I need form 8962?"
+    })
+    void taxQuestionsOutsideTheLexiconAreLeftToTheValidator(String question) {
+        assertThat(gate.classify(question)).isNotEqualTo(TaxRelevanceGate.Verdict.UNRELATED);
+    }
+
+    @Test
+    void unmatchedQuestionsAreUncertainRatherThanRejected() {
+        assertThat(gate.classify("How do I split rent with a roommate?")).isEqualTo(TaxRelevanceGate.Verdict.UNCERTAIN);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "What is the capital of France?",
+            "Give me a recipe for lasagna",
+            "Who won the World Cup in 2018?",
+            "Tell me a joke"
+    })
+    void plainlyOffTopicQuestionsAreRejectedLocally(String question) {
+        assertThat(gate.classify(question)).isEqualTo(TaxRelevanceGate.Verdict.UNRELATED);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "Is there sales tax on movie tickets?",
+            "Are lottery winnings taxable?",
+            "Can I deduct a football season pass for my business?",
+            "Are song royalties income?"
+    })
+    void offTopicWordsNextToMoneyWordsAreLeftToTheValidator(String question) {
+        assertThat(gate.classify(question)).isEqualTo(TaxRelevanceGate.Verdict.UNCERTAIN);
+    }
+
+    @Test
+    void taxTermsWinOverOffTopicTerms() {
+        assertThat(gate.classify("Capital gains on a film I sold")).isEqualTo(TaxRelevanceGate.Verdict.RELATED);
+    }
+
+    @Test
+    void lexiconTermsSettleTheQuestionLocally() {
+        assertThat(gate.classify("What is the 2025 standard deduction?")).isEqualTo(TaxRelevanceGate.Verdict.RELATED);
+        assertThat(gate.classify("Where do I find box 12 on my W-2?")).isEqualTo(TaxRelevanceGate.Verdict.RELATED);
+    }
+
+    @Test
+    void questionsWithoutWordsAreRejectedLocally() {
+        assertThat(gate.classify("  ?!  ")).isEqualTo(TaxRelevanceGate.Verdict.UNRELATED);
+        assertThat(gate.classify(null)).isEqualTo(TaxRelevanceGate.Verdict.UNRELATED);
+    }
+
+    @Test
+    void disabledGateLeavesEverythingToTheValidator() {
+        assertThat(newGate(false).classify("What is the 2025 standard deduction?"))
+                .isEqualTo(TaxRelevanceGate.Verdict.UNCERTAIN);
+        assertThat(newGate(false).classify("What is the capital of France?"))
+                .isEqualTo(TaxRelevanceGate.Verdict.UNCERTAIN);
+    }
+
+    @Test
+    void normalizeFoldsSpellingVariants() {
+        assertThat(TaxRelevanceGate.normalize("My W-2's Box-1?")).isEqualTo("my w2s box1");
+    }
+}
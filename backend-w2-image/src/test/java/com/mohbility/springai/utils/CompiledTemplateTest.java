@@ -0,0 +1,54 @@
+package com.mohbility.springai.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompiledTemplateTest {
+
+    @Test
+    void fillsPlaceholdersInOnePass() {
+        CompiledTemplate template = new CompiledTemplate("Recipient: {recipient_name}\nDocuments: {document_count}\n{summary}");
+
+        assertThat(template.render(Map.of("recipient_name", "Jane Doe", "document_count", "2", "summary", "W2 from Acme")))
+                .isEqualTo("Recipient: Jane Doe\nDocuments: 2\nW2 from Acme");
+    }
+
+    @Test
+    void keepsPlaceholdersWithoutAValue() {
+        CompiledTemplate template = new CompiledTemplate("Hello {name}, your total is {total}.");
+
+        assertThat(template.render(Map.of("name", "Jane"))).isEqualTo("Hello Jane, your total is {total}.");
+    }
+
+    @Test
+    void repeatedPlaceholdersAreAllFilled() {
+        CompiledTemplate template = new CompiledTemplate("{year} income and {year} withholding");
+
+        assertThat(template.render(Map.of("year", "2025"))).isEqualTo("2025 income and 2025 withholding");
+    }
+
+    @Test
+    void valuesAreNotReinterpretedAsPlaceholders() {
+        CompiledTemplate template = new CompiledTemplate("{question} / {answer}");
+
+        assertThat(template.render(Map.of("question", "What is {answer}?", "answer", "$5")))
+                .isEqualTo("What is {answer}? / $5");
+    }
+
+    @Test
+    void onlyLowercasePlaceholderNamesAreSlots() {
+        CompiledTemplate template = new CompiledTemplate("JSON example: {\"Wages\": 1} and {Name} then {name}");
+
+        assertThat(template.render(Map.of("name", "Jane", "Name", "ignored")))
+                .isEqualTo("JSON example: {\"Wages\": 1} and {Name} then Jane");
+    }
+
+    @Test
+    void templateWithoutPlaceholdersRendersUnchanged() {
+        assertThat(new CompiledTemplate("").render(Map.of())).isEmpty();
+        assertThat(new CompiledTemplate("plain text").render(Map.of("x", "y"))).isEqualTo("plain text");
+    }
+}
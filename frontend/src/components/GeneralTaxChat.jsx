@@ -2,6 +2,7 @@ import { useState, useRef, useEffect } from 'react';
 import { Box, TextField, Paper, Typography, Avatar, IconButton, Button } from '@mui/material';
 import { Send, SmartToy, Person, Home, Description, ContentCopy } from '@mui/icons-material';
 import axios from 'axios';
+import { streamDeltas } from '../stream';
 
 const API_BASE = import.meta.env.VITE_API_BASE_URL || 'http://localhost:8080';
 
@@ -14,6 +15,7 @@ export default function GeneralTaxChat({ onBackToHome }) {
     }
   ]);
   const [loading, setLoading] = useState(false);
+  const [answering, setAnswering] = useState(false);
   const [summaryText, setSummaryText] = useState('');
   const messagesEndRef = useRef(null);
 
@@ -33,19 +35,28 @@ export default function GeneralTaxChat({ onBackToHome }) {
     setMessages(prev => [...prev, { role: 'user', content: userMessage }]);
     setLoading(true);
 
+    let started = false;
     try {
-      const response = await axios.post(`${API_BASE}/chat/general`, {
-        question: userMessage
+      await streamDeltas(`${API_BASE}/chat/general/stream`, {
+        body: { question: userMessage },
+        onDelta: (delta) => {
+          const first = !started;
+          started = true;
+          setAnswering(true);
+          setMessages(prev => first
+            ? [...prev, { role: 'assistant', content: delta }]
+            : [...prev.slice(0, -1), { ...prev[prev.length - 1], content: prev[prev.length - 1].content + delta }]);
+        }
       });
-      setMessages(prev => [...prev, { role: 'assistant', content: response.data.answer }]);
     } catch (error) {
       console.error('Chat failed:', error);
-      setMessages(prev => [...prev, { 
-        role: 'assistant', 
-        content: 'Sorry, there was an error processing your message. Please try again.' 
+      setMessages(prev => [...prev, {
+        role: 'assistant',
+        content: 'Sorry, there was an error processing your message. Please try again.'
       }]);
     } finally {
       setLoading(false);
+      setAnswering(false);
     }
   };
 
@@ -221,7 +232,7 @@ export default function GeneralTaxChat({ onBackToHome }) {
             </Paper>
           </Box>
         ))}
-        {loading && (
+        {loading && !answering && (
           <Box sx={{ display: 'flex', gap: 1.5, mb: 2 }}>
             <Avatar sx={{ width: 36, height: 36, bgcolor: 'white', border: '2px solid #e2e8f0' }}>
               <SmartToy sx={{ color: '#667eea' }} />
@@ -1,10 +1,13 @@
 import { useState } from 'react';
+import axios from 'axios';
 import { Box, Typography, Button, Grid, Divider, Paper } from '@mui/material';
 import { CheckCircle, Download, FolderOpen } from '@mui/icons-material';
 import ResultCard from './ResultCard';
 import W2Chat from './W2Chat';
 import SummaryNotes from './SummaryNotes';
 
+const API_BASE = 'http://localhost:8080';
+
 export default function ResultsSection({ results, setModalImage }) {
   const [shouldRefreshSummary, setShouldRefreshSummary] = useState(false);
 
@@ -17,6 +20,21 @@ export default function ResultsSection({ results, setModalImage }) {
     console.log('handleSummaryRefreshComplete called');
     setShouldRefreshSummary(false);
   };
+
+  // Fetched through axios so the X-Session-Id header is sent; a plain link would need the id in the URL
+  const handleDownload = async () => {
+    try {
+      const response = await axios.get(`${API_BASE}/download`, { responseType: 'blob' });
+      const url = URL.createObjectURL(response.data);
+      const link = document.createElement('a');
+      link.href = url;
+      link.download = 'tax_documents.xlsx';
+      link.click();
+      URL.revokeObjectURL(url);
+    } catch (error) {
+      console.error('Failed to download:', error);
+    }
+  };
   if (!results || !results.table || results.table.length === 0) {
     return (
       <Box sx={{ 
@@ -67,7 +85,7 @@ export default function ResultsSection({ results, setModalImage }) {
         <Button
           variant="contained"
           startIcon={<Download />}
-          href="http://localhost:8080/download"
+          onClick={handleDownload}
           sx={{ 
             py: 1.5,
             px: 3,
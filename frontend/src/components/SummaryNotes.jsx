@@ -1,7 +1,7 @@
 import { useState, useEffect } from 'react';
 import { Box, Typography, Button, Paper, Snackbar, Alert } from '@mui/material';
 import { ContentCopy, Description } from '@mui/icons-material';
-import axios from 'axios';
+import { streamDeltas } from '../stream';
 
 const API_BASE = 'http://localhost:8080';
 
@@ -20,10 +20,11 @@ export default function SummaryNotes({ employeeName, shouldRefresh, onRefreshCom
   const fetchSummary = async () => {
     console.log('fetchSummary called for:', employeeName);
     setLoading(true);
+    setSummary('');
     try {
-      const response = await axios.get(`${API_BASE}/summary/${encodeURIComponent(employeeName)}`);
-      console.log('Summary response:', response.data);
-      setSummary(response.data.summary);
+      await streamDeltas(`${API_BASE}/summary/stream?employeeName=${encodeURIComponent(employeeName)}`, {
+        onDelta: (delta) => setSummary(prev => prev + delta)
+      });
       if (onRefreshComplete) {
         onRefreshComplete();
       }
@@ -86,7 +87,7 @@ export default function SummaryNotes({ employeeName, shouldRefresh, onRefreshCom
           overflow: 'auto'
         }}
       >
-        {loading ? 'Generating summary...' : summary || 'Answer "No, generate summary" in the chat section below to create a summary of the conversation.'}
+        {loading && !summary ? 'Generating summary...' : summary || 'Answer "No, generate summary" in the chat section below to create a summary of the conversation.'}
       </Box>
 
       <Snackbar
@@ -2,6 +2,7 @@ import { useState, useRef, useEffect } from 'react';
 import { Box, TextField, Button, Paper, Typography, Avatar, IconButton } from '@mui/material';
 import { Send, SmartToy, Person, Description, ContentCopy } from '@mui/icons-material';
 import axios from 'axios';
+import { streamDeltas } from '../stream';
 
 const API_BASE = 'http://localhost:8080';
 
@@ -14,6 +15,7 @@ export default function W2Chat({ employeeName, onSummaryGenerated }) {
     }
   ]);
   const [loading, setLoading] = useState(false);
+  const [answering, setAnswering] = useState(false);
   const messagesEndRef = useRef(null);
 
   const scrollToBottom = () => {
@@ -32,17 +34,25 @@ export default function W2Chat({ employeeName, onSummaryGenerated }) {
     setMessages(prev => [...prev, { role: 'user', content: userMessage }]);
     setLoading(true);
 
+    let started = false;
     try {
-      const response = await axios.post(`${API_BASE}/analyze`, {
-        employeeName,
-        question: userMessage
+      await streamDeltas(`${API_BASE}/analyze/stream`, {
+        body: { employeeName, question: userMessage },
+        onDelta: (delta) => {
+          const first = !started;
+          started = true;
+          setAnswering(true);
+          setMessages(prev => first
+            ? [...prev, { role: 'assistant', content: delta }]
+            : [...prev.slice(0, -1), { ...prev[prev.length - 1], content: prev[prev.length - 1].content + delta }]);
+        }
       });
-      setMessages(prev => [...prev, { role: 'assistant', content: response.data.answer }]);
     } catch (error) {
       console.error('Chat failed:', error);
       setMessages(prev => [...prev, { role: 'assistant', content: 'Sorry, there was an error processing your message.' }]);
     } finally {
       setLoading(false);
+      setAnswering(false);
     }
   };
 
@@ -163,7 +173,7 @@ export default function W2Chat({ employeeName, onSummaryGenerated }) {
             </Paper>
           </Box>
         ))}
-        {loading && (
+        {loading && !answering && (
           <Box sx={{ display: 'flex', gap: 1.5, mb: 2 }}>
             <Avatar sx={{ width: 36, height: 36, bgcolor: 'white', border: '2px solid #e2e8f0' }}>
               <SmartToy sx={{ color: '#667eea' }} />
@@ -1,7 +1,11 @@
 import { StrictMode } from 'react'
 import { createRoot } from 'react-dom/client'
+import axios from 'axios'
 import './index.css'
 import App from './App.jsx'
+import { getSessionId } from './session'
+
+axios.defaults.headers.common['X-Session-Id'] = getSessionId()
 
 createRoot(document.getElementById('root')).render(
   <StrictMode>
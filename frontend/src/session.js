@@ -0,0 +1,11 @@
+// One backend session per browser tab, so concurrent preparers don't share documents or chats.
+const STORAGE_KEY = 'taxSessionId';
+
+export function getSessionId() {
+  let sessionId = sessionStorage.getItem(STORAGE_KEY);
+  if (!sessionId) {
+    sessionId = crypto.randomUUID();
+    sessionStorage.setItem(STORAGE_KEY, sessionId);
+  }
+  return sessionId;
+}
@@ -0,0 +1,50 @@
+import { getSessionId } from './session';
+
+// Reads a server-sent event stream of {"delta": "..."} payloads and hands each delta to onDelta.
+// The payload is JSON so the leading space of a token survives; SSE strips one after "data:".
+export async function streamDeltas(url, { body, onDelta, signal } = {}) {
+  const response = await fetch(url, {
+    method: body ? 'POST' : 'GET',
+    headers: {
+      Accept: 'text/event-stream',
+      'X-Session-Id': getSessionId(),
+      ...(body ? { 'Content-Type': 'application/json' } : {})
+    },
+    body: body ? JSON.stringify(body) : undefined,
+    signal
+  });
+  if (!response.ok || !response.body) {
+    throw new Error(`Stream request failed with status ${response.status}`);
+  }
+
+  const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+  let buffer = '';
+  for (;;) {
+    const { value, done } = await reader.read();
+    if (done) break;
+    buffer += value.replace(/\r\n?/g, '\n');
+    let end;
+    while ((end = buffer.indexOf('\n\n')) >= 0) {
+      dispatch(buffer.slice(0, end), onDelta);
+      buffer = buffer.slice(end + 2);
+    }
+  }
+  if (buffer.trim()) dispatch(buffer, onDelta);
+}
+
+function dispatch(frame, onDelta) {
+  let event = 'message';
+  const data = [];
+  for (const line of frame.split('\n')) {
+    const colon = line.indexOf(':');
+    const field = colon < 0 ? line : line.slice(0, colon);
+    let value = colon < 0 ? '' : line.slice(colon + 1);
+    if (value.startsWith(' ')) value = value.slice(1);
+    if (field === 'event') event = value;
+    else if (field === 'data') data.push(value);
+  }
+  if (data.length === 0) return;
+  const payload = JSON.parse(data.join('\n'));
+  if (event === 'error') throw new Error(payload.error);
+  onDelta(payload.delta);
+}